@@ -20,6 +20,7 @@
 package org.the.ems.core;
 
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 import org.osgi.framework.BundleContext;
@@ -36,6 +37,7 @@ import org.the.ems.core.config.ConfigurationException;
 import org.the.ems.core.config.Configurations;
 import org.the.ems.core.data.Channel;
 import org.the.ems.core.data.WriteContainer;
+import org.the.ems.core.data.WriteException;
 
 public abstract class Component extends Configurable implements ComponentService {
 	private final static Logger logger = LoggerFactory.getLogger(Component.class);
@@ -152,7 +154,7 @@ public abstract class Component extends Configurable implements ComponentService
 	void doActivate(ComponentContext context, Map<String, ?> properties) throws ComponentException {
 		componentStatus = ComponentStatus.ENABLED;
 		
-		Configurations configs = Configurations.create(properties);
+		Configurations configs = Configurations.snapshot(properties);
 		configure(configs);
 		if (isEnabled()) {
 			onActivate(componentContext, properties);
@@ -192,18 +194,65 @@ public abstract class Component extends Configurable implements ComponentService
 	}
 
 	void doModified(Map<String, ?> properties) throws ComponentException {
-		Configurations configs = Configurations.create(properties);
-		configure(configs);
-		if (isActive()) {
-			// TODO: Remove deactivating/activating
+		Configurations configs = Configurations.snapshot(properties);
+		if (!isActive() || getConfigurations() == null) {
+			configure(configs);
+			return;
+		}
+		Set<String> changedKeys = getConfigurations().diff(configs);
+		if (changedKeys.isEmpty()) {
+			return;
+		}
+		if (isModifiable() && isReconfigurable(changedKeys)) {
+			doConfigure(configs, changedKeys);
+		}
+		else {
+			logger.debug("Reactivating {} {} for changed configurations: {}", 
+					getType().getFullName(), id, changedKeys);
+			
 			doDeactivate();
+			componentContext.activate();
 			doActivate(componentContext, properties);
-			
-			onModified(componentContext, properties);
-			onModified(componentContext, configs);
-			onModified(configs);
-			onModified();
+			if (!isActive()) {
+				return;
+			}
+		}
+		onModified(changedKeys);
+		onModified(componentContext, properties);
+		onModified(componentContext, configs);
+		onModified(configs);
+		onModified();
+	}
+
+	/**
+	 * Returns true if the component handles modified configurations itself, by overriding 
+	 * {@link #onModified(Set)}. Any other component will be reactivated, to rebuild all state 
+	 * derived from its configurations on activation.
+	 */
+	private boolean isModifiable() {
+		for (Class<?> type = getClass(); type != Component.class; type = type.getSuperclass()) {
+			try {
+				type.getDeclaredMethod("onModified", Set.class);
+				return true;
+				
+			} catch (NoSuchMethodException e) {
+				// Continue with the superclass
+			}
 		}
+		return false;
+	}
+
+	/**
+	 * Called after the configurations of an active component were modified. Components overriding this 
+	 * method opt in to incremental reconfiguration: unless configured channels, the enabled state or keys 
+	 * not covered by any configuration element changed, only configurations affected by the changed keys 
+	 * were injected again, keeping all channel listeners and threads intact. 
+	 * State derived from configurations on activation needs to be updated here.
+	 * 
+	 * @param changedKeys the added, removed or changed configuration keys, as section keys
+	 */
+	protected void onModified(Set<String> changedKeys) throws ComponentException {
+		// Default implementation to be overridden
 	}
 
 	protected void onModified(ComponentContext context, Map<String, ?> properties) throws ComponentException {
@@ -267,9 +316,8 @@ public abstract class Component extends Configurable implements ComponentService
         }
         getContext().execute(() -> {
 			try {
-	    		for (Channel channel : container.keySet()) {
-					channel.write(container.get(channel));
-	    		}
+				doWrite(container);
+				
 			} catch (Exception e) {
 				return e;
 			}
@@ -278,6 +326,27 @@ public abstract class Component extends Configurable implements ComponentService
         }, getWriteTimeout(), TimeUnit.SECONDS);
 	}
 
+	private void doWrite(WriteContainer container) throws EnergyManagementException {
+		ContentManagementService content;
+		try {
+			content = getContext().getContentManagement();
+			
+		} catch (UnsupportedOperationException e) {
+			for (Channel channel : container.keySet()) {
+				channel.write(container.get(channel));
+			}
+			return;
+		}
+		try {
+			content.write(container);
+			
+		} catch (WriteException e) {
+			// Values flagged as failed by the driver did not fail writes before they were batched
+			logger.warn("Unable to write values of {} component \"{}\": {}", 
+					getType().getFullName(), getId(), e.getMessage());
+		}
+	}
+
 	void interrupt() throws EnergyManagementException {
 		try {
 			onInterrupt();
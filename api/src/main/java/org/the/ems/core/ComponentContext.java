@@ -23,7 +23,6 @@ import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
@@ -37,6 +36,7 @@ import org.osgi.framework.BundleContext;
 import org.osgi.framework.ServiceRegistration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.the.ems.core.config.ConfigurationSnapshot;
 import org.the.ems.core.config.Configurations;
 
 public final class ComponentContext extends ConfigurableContext {
@@ -143,18 +143,20 @@ public final class ComponentContext extends ConfigurableContext {
 	@SuppressWarnings("unchecked")
 	public <C extends ComponentService> void registerService(String id, Configurations configs, 
 			Component component, Class<C> service) throws ComponentException {
-		Configurations componentConfigs = Configurations.create();
-		componentConfigs.put(Configurations.GENERAL, "id", id);
-		for (Entry<String, ?> entry : configs.entrySet()) {
-			if (entry.getKey().toLowerCase().equals("general.id") ||
-					entry.getKey().toLowerCase().startsWith("component") ||
-					entry.getKey().toLowerCase().startsWith("bundle") ||
-					entry.getKey().toLowerCase().startsWith("service")) {
+		ConfigurationSnapshot snapshot = configs.snapshot();
+		ConfigurationSnapshot.Builder builder = snapshot.derive();
+		for (String section : snapshot.getSections()) {
+			if (section.toLowerCase().startsWith("component") ||
+					section.toLowerCase().startsWith("bundle") ||
+					section.toLowerCase().startsWith("service")) {
 				
-				continue;
+				builder.removeSection(section);
 			}
-			componentConfigs.put(entry.getKey(), entry.getValue());
 		}
+		ConfigurationSnapshot componentConfigs = builder
+				.put(Configurations.GENERAL, "id", id)
+				.build();
+		
 		component.activate(context, componentConfigs);
 		
 		ServiceRegistration<C> serviceRegistration = context.registerService(service, (C) component, componentConfigs);
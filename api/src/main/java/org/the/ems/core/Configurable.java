@@ -19,15 +19,18 @@
  */
 package org.the.ems.core;
 
-import java.lang.reflect.AnnotatedElement;
-import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.text.MessageFormat;
-import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import org.the.ems.core.config.Configuration;
 import org.the.ems.core.config.ConfigurationCollection;
@@ -37,6 +40,13 @@ import org.the.ems.core.data.Channel;
 import org.the.ems.core.data.ChannelCollection;
 
 public abstract class Configurable {
+	private final static Logger logger = LoggerFactory.getLogger(Configurable.class);
+
+	/**
+	 * Keys of the default section, that are read by the framework and not bound to any element.
+	 */
+	private final static String[] RESERVED_KEYS = new String[] { 
+			Configurations.ENABLED, Configurations.DISABLED, "id", "type", "pid", "depends" };
 
 	private Configurations configs;
 
@@ -58,145 +68,269 @@ public abstract class Configurable {
 	void doConfigure(Configurations configs) throws ConfigurationException {
 		this.configs = configs;
 		if (isEnabled()) {
-			List<AnnotatedElement> elements = new LinkedList<AnnotatedElement>();
-			Class<?> clazz = this.getClass();
-			while(clazz.getSuperclass() != null) {
-				elements.addAll(Arrays.asList(clazz.getDeclaredFields()));
-				elements.addAll(Arrays.asList(clazz.getDeclaredMethods()));
-			    clazz = clazz.getSuperclass();
-			}
-			doConfigure(configs, elements);
+			ConfigurationMetadata metadata = ConfigurationMetadata.get(this.getClass());
+			doConfigure(configs, metadata);
+			verifyKeys(configs, metadata);
 			onConfigure(configs);
 		}
 	}
 
-	private void doConfigure(Configurations configs, List<AnnotatedElement> elements) 
-			throws ConfigurationException {
+	private void verifyKeys(Configurations configs, ConfigurationMetadata metadata) {
+		for (Entry<String, String> unknownKey : getUnknownKeys(configs, metadata).entrySet()) {
+			if (unknownKey.getValue() != null) {
+				logger.warn("Unknown configuration \"{}\" of {}, did you mean \"{}\"?", 
+						unknownKey.getKey(), getClass().getSimpleName(), unknownKey.getValue());
+			}
+			else if (logger.isDebugEnabled()) {
+				logger.debug("Configuration \"{}\" not bound to any field of {}", 
+						unknownKey.getKey(), getClass().getSimpleName());
+			}
+		}
+	}
 
-		for (AnnotatedElement element : elements) {
-			Configuration config = element.getAnnotation(Configuration.class);
-			if (config == null) {
+	/**
+	 * Returns keys of the general section, that no configuration element covers, mapped to a similar known key 
+	 * or null. Keys similar to a known key are likely misspelled, while others may still be read from the 
+	 * configurations directly. Other sections may be shared by several configurables and are not verified.
+	 */
+	Map<String, String> getUnknownKeys(Configurations configs, ConfigurationMetadata metadata) {
+		Map<String, String> unknownKeys = new TreeMap<String, String>();
+		String section = getDefaultSection();
+		String prefix = Configurations.parseSectionKey(section, "");
+		if (!prefix.equals(Configurations.parseSectionKey(Configurations.GENERAL, ""))) {
+			return unknownKeys;
+		}
+		Set<String> uncoveredKeys = new HashSet<String>(configs.getSection(section).keySet());
+		for (String key : RESERVED_KEYS) {
+			uncoveredKeys.remove(prefix.concat(key));
+		}
+		List<String> knownKeys = new LinkedList<String>();
+		for (ConfigurationMetadata.Element element : metadata) {
+			if (!Configurations.parseSectionKey(getSection(element), "").equals(prefix)) {
 				continue;
 			}
-			
-			String section = config.section();
-			if (section.isEmpty() || section.equals(Configuration.SECTION_DEFAULT)) {
-				section = getDefaultSection();
+			uncoveredKeys.removeAll(getAffectedKeys(element, section, uncoveredKeys));
+			for (String key : element.keys) {
+				if (!key.contains("?") && !key.contains("*")) {
+					knownKeys.add(key.toLowerCase());
+				}
 			}
-			if (!configs.isEnabled(section)) {
+		}
+		for (String uncoveredKey : uncoveredKeys) {
+			String key = uncoveredKey.substring(prefix.length());
+			String similarKey = null;
+			for (String knownKey : knownKeys) {
+				if (getDistance(key, knownKey) <= Math.max(1, knownKey.length()/4)) {
+					similarKey = knownKey;
+					break;
+				}
+			}
+			unknownKeys.put(key, similarKey);
+		}
+		return unknownKeys;
+	}
+
+	/**
+	 * Returns the number of single character edits, needed to change one key into the other.
+	 */
+	private static int getDistance(String key, String other) {
+		int[] distances = new int[other.length() + 1];
+		for (int j = 0; j <= other.length(); j++) {
+			distances[j] = j;
+		}
+		for (int i = 1; i <= key.length(); i++) {
+			int diagonal = distances[0];
+			distances[0] = i;
+			for (int j = 1; j <= other.length(); j++) {
+				int above = distances[j];
+				int cost = key.charAt(i - 1) == other.charAt(j - 1) ? 0 : 1;
+				distances[j] = Math.min(Math.min(distances[j - 1], above) + 1, diagonal + cost);
+				diagonal = above;
+			}
+		}
+		return distances[other.length()];
+	}
+
+	/**
+	 * Configures only elements, affected by the changed keys, as returned by {@link Configurations#diff(java.util.Map)}.
+	 */
+	void doConfigure(Configurations configs, Set<String> changedKeys) throws ConfigurationException {
+		this.configs = configs;
+		if (isEnabled()) {
+			ConfigurationMetadata metadata = ConfigurationMetadata.get(this.getClass());
+			for (ConfigurationMetadata.Element element : metadata) {
+				String section = getSection(element);
+				if (!getAffectedKeys(element, section, changedKeys).isEmpty()) {
+					doConfigure(configs, element, section);
+				}
+			}
+			onConfigure(configs);
+		}
+	}
+
+	private void doConfigure(Configurations configs, ConfigurationMetadata metadata) 
+			throws ConfigurationException {
+
+		for (ConfigurationMetadata.Element element : metadata) {
+			doConfigure(configs, element, getSection(element));
+		}
+	}
+
+	private void doConfigure(Configurations configs, ConfigurationMetadata.Element element, String section) 
+			throws ConfigurationException {
+
+		if (!configs.isEnabled(section)) {
+			return;
+		}
+		if (element.error != null) {
+			throw newConfigException(element.error);
+		}
+		boolean configured = false;
+		if (element.kind == ConfigurationMetadata.Kind.METHOD) {
+			configured = configureMethod(element, section);
+		}
+		else {
+			configured = configureField(element, section);
+		}
+		if (!configured && element.mandatory) {
+			throw newConfigException(MessageFormat.format("Mandatory configuration of section \"{0}\" not found: {1}",
+					section, element.key));
+		}
+	}
+
+	/**
+	 * Returns false if any of the changed keys cannot be applied by configuring the affected elements alone. 
+	 * This is the case for configured channels, that may already hold registered listeners, 
+	 * if the default section gets enabled or disabled, or for keys no configuration element covers, 
+	 * as they may only be read directly from the configurations on activation.
+	 */
+	boolean isReconfigurable(Set<String> changedKeys) {
+		if (changedKeys.contains(Configurations.parseSectionKey(getDefaultSection(), Configurations.ENABLED)) ||
+				changedKeys.contains(Configurations.parseSectionKey(getDefaultSection(), Configurations.DISABLED))) {
+			return false;
+		}
+		Set<String> uncoveredKeys = new HashSet<String>(changedKeys);
+		for (ConfigurationMetadata.Element element : ConfigurationMetadata.get(this.getClass())) {
+			Set<String> affectedKeys = getAffectedKeys(element, getSection(element), changedKeys);
+			if (affectedKeys.isEmpty()) {
 				continue;
 			}
-			String[] keys = config.value();
-			
-			boolean configured = false;
-			if (element instanceof Field) {
-				configured = configureField((Field) element, section, keys, config.scale());
+			if (element.channel || 
+					element.kind == ConfigurationMetadata.Kind.CHANNELS || 
+					element.kind == ConfigurationMetadata.Kind.METHOD) {
+				return false;
 			}
-			else {
-				configured = configureMethod((Method) element, section, keys);
+			uncoveredKeys.removeAll(affectedKeys);
+		}
+		return uncoveredKeys.isEmpty();
+	}
+
+	private static Set<String> getAffectedKeys(ConfigurationMetadata.Element element, String section, 
+			Set<String> changedKeys) {
+		Set<String> affectedKeys = new HashSet<String>();
+		String prefix = Configurations.parseSectionKey(section, "");
+		for (String key : new String[] { Configurations.ENABLED, Configurations.DISABLED }) {
+			if (changedKeys.contains(prefix.concat(key))) {
+				affectedKeys.add(prefix.concat(key));
 			}
-			if (!configured && config.mandatory()) {
-				throw newConfigException(MessageFormat.format("Mandatory configuration of section \"{0}\" not found: {1}",
-						section, parseKey(keys, element)));
+		}
+		for (String key : element.keys) {
+			if (key.contains("?") || key.contains("*")) {
+				for (String affectedKey : Configurations.search(changedKeys, section, key)) {
+					affectedKeys.add(prefix.concat(affectedKey));
+				}
+			}
+			else if (changedKeys.contains(prefix.concat(key.toLowerCase()))) {
+				affectedKeys.add(prefix.concat(key.toLowerCase()));
 			}
 		}
+		if (element.kind == ConfigurationMetadata.Kind.METHOD && 
+				changedKeys.contains(prefix.concat(element.key.toLowerCase()))) {
+			affectedKeys.add(prefix.concat(element.key.toLowerCase()));
+		}
+		return affectedKeys;
+	}
+
+	private String getSection(ConfigurationMetadata.Element element) {
+		if (element.section == null) {
+			return getDefaultSection();
+		}
+		return element.section;
 	}
 
 	protected void onConfigure(Configurations configs) throws ConfigurationException {
 		// Default implementation to be overridden
 	}
 
-	private boolean configureMethod(Method method,
-			String section, String[] keys) throws ConfigurationException {
-		
-		if (keys.length > 1) {
-			throw newConfigException(MessageFormat.format("Method configuration \"{0}\" with several keys not allowed",
-					method.getName()));
-		}
+	private boolean configureMethod(ConfigurationMetadata.Element method, 
+			String section) throws ConfigurationException {
 		
-		String key = parseKey(keys, method);
-		if (configs.containsKey(section, key)) {
-			getContext().getConfiguredChannel(section, key);
+		if (configs.containsKey(section, method.key)) {
+			getContext().getConfiguredChannel(section, method.key);
 			
 			return true;
 		}
 		return false;
 	}
 
-	private boolean configureField(Field field, 
-			String section, String[] keys, double scale) throws ConfigurationException {
+	private boolean configureField(ConfigurationMetadata.Element field, 
+			String section) throws ConfigurationException {
 		Object value = null;
 		
-		Class<?> type = field.getType();
-		if (ChannelCollection.class.isAssignableFrom(type)) {
+		String[] keys = field.keys;
+		switch (field.kind) {
+		case CHANNELS:
 			value = configureChannels(section, keys);
-		}
-		else if (ConfigurationCollection.class.isAssignableFrom(type)) {
-			value = configureCollection(section, keys, type);
-		}
-		else if (Collection.class.isAssignableFrom(type)) {
+			break;
+		case COLLECTION:
+			value = configureCollection(section, keys, field);
+			break;
+		case LIST:
 			value = configureList(section, keys);
-		}
-		else {
+			break;
+		default:
 			for (String key : keys) {
-				if (key.isEmpty() || key.equals(Configuration.VALUE_DEFAULT)) {
-					key = parseKey(field.getName());
-				}
 				if (configs.containsKey(section, key)) {
-					value = configureField(type, section, key);
+					value = configureField(field, section, key);
 					break;
 				}
 			}
+			break;
 		}
-		try {
-			if (value != null) {
-				if (scale != 1) {
-					if (type.isAssignableFrom(short.class) || type.isAssignableFrom(Short.class)) {
-						value = (short) value*(short)scale;
-					}
-					else if (type.isAssignableFrom(int.class) || type.isAssignableFrom(Integer.class)) {
-						value = (int) value*(int) scale;
-					}
-					else if (type.isAssignableFrom(long.class) || type.isAssignableFrom(Long.class)) {
-						value = (long) value*(long) scale;
-					}
-					else if (type.isAssignableFrom(float.class) || type.isAssignableFrom(Float.class)) {
-						value = (float) value*(float) scale;
-					}
-					else if (type.isAssignableFrom(double.class) || type.isAssignableFrom(Double.class)) {
-						value = (double) value*scale;
-					}
-				}
-				field.setAccessible(true);
+		if (value != null) {
+			value = field.scale(value);
+			try {
 				field.set(this, value);
 				
-				if (type.isAssignableFrom(ChannelCollection.class) &&
-						keys.length > ((ChannelCollection) value).size()) {
-					return false;
-				}
-				else if (type.isAssignableFrom(Collection.class) &&
-						keys.length > ((Collection<?>) value).size()) {
-					return false;
-				}
-				return true;
+			} catch (Error e) {
+				throw e;
+			} catch (Throwable e) {
+				throw newConfigException(e.getMessage());
 			}
-		} catch (IllegalArgumentException | IllegalAccessException e) {
-			throw newConfigException(e.getMessage());
+			if (field.channelCollectionSize &&
+					keys.length > ((ChannelCollection) value).size()) {
+				return false;
+			}
+			else if (field.collectionSize &&
+					keys.length > ((Collection<?>) value).size()) {
+				return false;
+			}
+			return true;
 		}
 		return false;
 	}
 
-	private Object configureField(Class<?> type, 
+	private Object configureField(ConfigurationMetadata.Element field, 
 			String section, String key) throws ConfigurationException {
 
 		try {
-			if (Channel.class.isAssignableFrom(type)) {
+			if (field.channel) {
 				Channel channel = getContext().getConfiguredChannel(section, key);
 				
 				return channel;
 			}
 			else {
-				return configs.get(section, key, type);
+				return field.convert(configs, section, key);
 			}
 		} catch (ConfigurationException | IllegalArgumentException | 
 				NullPointerException | NoSuchFieldException e) {
@@ -230,34 +364,36 @@ public abstract class Configurable {
 	}
 
 	private ConfigurationCollection<?> configureCollection(String section, String[] keys, 
-			Class<?> type) throws ConfigurationException {
-        try {
-        	ConfigurationCollection<?> collection = (ConfigurationCollection<?>) type.getDeclaredConstructor().newInstance();
-    		for (String key : keys) {
-    			try {
-    				if (key.isEmpty() || key.equals(Configuration.VALUE_DEFAULT)) {
-    					throw new ConfigurationException("Error configuring empty string collection");
-    				}
-    				else if (key.contains("?") || key.contains("*")) {
-    					for (String k : configs.search(section, key)) {
-    						collection.add(k, configs.get(section, k, String.class));
-    					}
-    				}
-    				else if (configs.containsKey(section, key)) {
-    					collection.add(key, configs.get(section, key, String.class));
-    				}
-    			} catch (ConfigurationException | IllegalArgumentException | 
-    					NullPointerException | NoSuchFieldException e) {
-    				
-    				throw newConfigException(e.getMessage());
-    			}
-    		}
-    		return collection;
-    		
-        } catch (InstantiationException | IllegalAccessException | IllegalArgumentException | InvocationTargetException | 
-        		SecurityException | NoSuchMethodException e) {
+			ConfigurationMetadata.Element field) throws ConfigurationException {
+		ConfigurationCollection<?> collection;
+		try {
+			collection = (ConfigurationCollection<?>) field.newCollection();
+			
+		} catch (Error e) {
+			throw e;
+		} catch (Throwable e) {
 			throw newConfigException(e.getMessage());
-        }
+		}
+		for (String key : keys) {
+			try {
+				if (key.isEmpty() || key.equals(Configuration.VALUE_DEFAULT)) {
+					throw new ConfigurationException("Error configuring empty string collection");
+				}
+				else if (key.contains("?") || key.contains("*")) {
+					for (String k : configs.search(section, key)) {
+						collection.add(k, configs.get(section, k, String.class));
+					}
+				}
+				else if (configs.containsKey(section, key)) {
+					collection.add(key, configs.get(section, key, String.class));
+				}
+			} catch (ConfigurationException | IllegalArgumentException | 
+					NullPointerException | NoSuchFieldException e) {
+				
+				throw newConfigException(e.getMessage());
+			}
+		}
+		return collection;
 	}
 
 	private ChannelCollection configureChannels(String section, String[] keys) throws ConfigurationException {
@@ -305,30 +441,4 @@ public abstract class Configurable {
 				this.getClass().getSimpleName(), message));
 	}
 
-	private static String parseKey(String[] keys, AnnotatedElement element) {
-		String key = keys[0];
-		if (key.isEmpty() || key.equals(Configuration.VALUE_DEFAULT)) {
-			String name;
-			if (element instanceof Field) {
-				name = ((Field) element).getName();
-			}
-			else {
-				name = ((Method) element).getName();
-				if (name.startsWith("get")) {
-					name = name.substring(3);
-				}
-			}
-			key = parseKey(name);
-		}
-		return key;
-	}
-
-	private static String parseKey(String key) {
-		LinkedList<String> result = new LinkedList<String>();
-		for (String str : key.split("(?<!(^|[A-Z]))(?=[A-Z])|(?<!^)(?=[A-Z][a-z])")) {
-			result.add(str.toLowerCase());
-		}
-		return String.join("_", result);
-	}
-
 }
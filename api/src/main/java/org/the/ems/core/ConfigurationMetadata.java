@@ -0,0 +1,437 @@
+/* 
+ * Copyright 2016-2021 ISC Konstanz
+ * 
+ * This file is part of TH-E-EMS.
+ * For more information visit https://github.com/isc-konstanz/th-e-ems
+ * 
+ * TH-E-EMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * TH-E-EMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with TH-E-EMS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.the.ems.core;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.InetAddress;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.the.ems.core.config.Configuration;
+import org.the.ems.core.config.ConfigurationBinder;
+import org.the.ems.core.config.ConfigurationCollection;
+import org.the.ems.core.config.ConfigurationException;
+import org.the.ems.core.config.Configurations;
+import org.the.ems.core.data.Channel;
+import org.the.ems.core.data.ChannelCollection;
+
+/**
+ * Resolved {@link Configuration} annotations of a {@link Configurable} class.
+ * <p>
+ * The class hierarchy is only reflected once per class. Keys, sections, scales and 
+ * type converters are resolved in advance and fields are set through method handles.
+ * Typed converters of a generated {@link ConfigurationBinder} are preferred, if available.
+ */
+final class ConfigurationMetadata implements Iterable<ConfigurationMetadata.Element> {
+	private final static Logger logger = LoggerFactory.getLogger(ConfigurationMetadata.class);
+
+	private static final ClassValue<ConfigurationMetadata> CACHE = new ClassValue<ConfigurationMetadata>() {
+
+		@Override
+		protected ConfigurationMetadata computeValue(Class<?> type) {
+			return new ConfigurationMetadata(type);
+		}
+	};
+
+	private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+	private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+	private static final MethodHandle FIELD_SETTER;
+
+	static {
+		try {
+			FIELD_SETTER = LOOKUP.findVirtual(Field.class, "set", SETTER_TYPE);
+			
+		} catch (NoSuchMethodException | IllegalAccessException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	enum Kind {
+		CHANNELS,
+		COLLECTION,
+		LIST,
+		VALUE,
+		METHOD;
+	}
+
+	enum Scale {
+		NONE,
+		SHORT,
+		INTEGER,
+		LONG,
+		FLOAT,
+		DOUBLE;
+	}
+
+	private final List<Element> elements;
+
+	private ConfigurationMetadata(Class<?> type) {
+		List<Element> elements = new ArrayList<Element>();
+		Class<?> clazz = type;
+		while(clazz.getSuperclass() != null) {
+			ConfigurationBinder binder = null;
+			for (Field field : clazz.getDeclaredFields()) {
+				Configuration config = field.getAnnotation(Configuration.class);
+				if (config != null) {
+					if (binder == null) {
+						binder = loadBinder(clazz);
+					}
+					elements.add(new Element(field, config, binder));
+				}
+			}
+			for (Method method : clazz.getDeclaredMethods()) {
+				Configuration config = method.getAnnotation(Configuration.class);
+				if (config != null) {
+					elements.add(new Element(method, config));
+				}
+			}
+			clazz = clazz.getSuperclass();
+		}
+		this.elements = Collections.unmodifiableList(elements);
+	}
+
+	static ConfigurationMetadata get(Class<? extends Configurable> type) {
+		return CACHE.get(type);
+	}
+
+	public int size() {
+		return elements.size();
+	}
+
+	@Override
+	public Iterator<Element> iterator() {
+		return elements.iterator();
+	}
+
+	static final class Element {
+
+		final Kind kind;
+
+		final Class<?> type;
+
+		/**
+		 * The explicitly configured section, or null if the default section of the instance applies.
+		 */
+		final String section;
+
+		/**
+		 * The configured keys, with default keys replaced by the parsed element name.
+		 */
+		final String[] keys;
+
+		/**
+		 * The key used to identify this element in exception messages.
+		 */
+		final String key;
+
+		final boolean mandatory;
+
+		final Scale scale;
+		final double scaleFactor;
+
+		final boolean channel;
+		final boolean channelCollectionSize;
+		final boolean collectionSize;
+
+		private final boolean upperCase;
+
+		private final MethodHandle converter;
+
+		private final ConfigurationBinder.Converter binding;
+
+		private final MethodHandle factory;
+
+		private final MethodHandle setter;
+
+		/**
+		 * An error message, deferred until the element is configured.
+		 */
+		final String error;
+
+		private Element(Field field, Configuration config, ConfigurationBinder binder) {
+			this.type = field.getType();
+			this.section = parseSection(config.section());
+			this.mandatory = config.mandatory();
+			this.key = parseKey(config.value(), field);
+			this.channel = Channel.class.isAssignableFrom(type);
+			this.channelCollectionSize = type.isAssignableFrom(ChannelCollection.class);
+			this.collectionSize = type.isAssignableFrom(Collection.class);
+			this.scaleFactor = config.scale();
+			this.scale = parseScale(type, scaleFactor);
+			this.upperCase = type.isEnum();
+			
+			String error = null;
+			String[] keys = config.value();
+			MethodHandle factory = null;
+			if (ChannelCollection.class.isAssignableFrom(type)) {
+				this.kind = Kind.CHANNELS;
+			}
+			else if (ConfigurationCollection.class.isAssignableFrom(type)) {
+				this.kind = Kind.COLLECTION;
+				try {
+					Constructor<?> constructor = type.getDeclaredConstructor();
+					constructor.setAccessible(true);
+					factory = LOOKUP.unreflectConstructor(constructor)
+							.asType(MethodType.methodType(Object.class));
+					
+				} catch (ReflectiveOperationException | RuntimeException e) {
+					error = String.valueOf(e.getMessage());
+				}
+			}
+			else if (Collection.class.isAssignableFrom(type)) {
+				this.kind = Kind.LIST;
+			}
+			else {
+				this.kind = Kind.VALUE;
+				keys = keys.clone();
+				for (int i = 0; i < keys.length; i++) {
+					if (keys[i].isEmpty() || keys[i].equals(Configuration.VALUE_DEFAULT)) {
+						keys[i] = parseKey(field.getName());
+					}
+				}
+			}
+			this.keys = keys;
+			this.factory = factory;
+			this.binding = kind == Kind.VALUE && !channel ? binder.getConverter(field.getName()) : null;
+			this.converter = kind == Kind.VALUE && !channel && binding == null ? parseConverter(type) : null;
+			this.setter = parseSetter(field);
+			this.error = error;
+		}
+
+		private Element(Method method, Configuration config) {
+			this.kind = Kind.METHOD;
+			this.type = method.getReturnType();
+			this.section = parseSection(config.section());
+			this.mandatory = config.mandatory();
+			this.keys = config.value();
+			this.key = parseKey(keys, method);
+			this.channel = false;
+			this.channelCollectionSize = false;
+			this.collectionSize = false;
+			this.scaleFactor = 1;
+			this.scale = Scale.NONE;
+			this.upperCase = false;
+			this.converter = null;
+			this.binding = null;
+			this.factory = null;
+			this.setter = null;
+			if (keys.length > 1) {
+				this.error = MessageFormat.format("Method configuration \"{0}\" with several keys not allowed",
+						method.getName());
+			}
+			else {
+				this.error = null;
+			}
+		}
+
+		Object convert(Configurations configs, String section, String key) 
+				throws ConfigurationException, NoSuchFieldException {
+			if (binding != null) {
+				return binding.convert(configs, section, key);
+			}
+			if (converter == null) {
+				return configs.get(section, key, type);
+			}
+			String value = configs.get(section, key);
+			if (upperCase) {
+				value = value.toUpperCase();
+			}
+			try {
+				return converter.invoke(value);
+				
+			} catch (Error e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new ConfigurationException(MessageFormat.format("Value of {0} is not type of {1}.", 
+						key, type.getSimpleName()));
+			}
+		}
+
+		Object scale(Object value) {
+			switch (scale) {
+			case SHORT:
+				return (short) value*(short) scaleFactor;
+			case INTEGER:
+				return (int) value*(int) scaleFactor;
+			case LONG:
+				return (long) value*(long) scaleFactor;
+			case FLOAT:
+				return (float) value*(float) scaleFactor;
+			case DOUBLE:
+				return (double) value*scaleFactor;
+			default:
+				return value;
+			}
+		}
+
+		Object newCollection() throws Throwable {
+			return factory.invoke();
+		}
+
+		void set(Object instance, Object value) throws Throwable {
+			setter.invokeExact(instance, value);
+		}
+	}
+
+	/**
+	 * Loads the generated binder of the class, or a binder without any converters if none was generated.
+	 */
+	private static ConfigurationBinder loadBinder(Class<?> type) {
+		String name = type.getName();
+		String pkg = type.getPackage() != null ? type.getPackage().getName() : "";
+		if (!pkg.isEmpty()) {
+			name = pkg + "." + name.substring(pkg.length() + 1).replace('$', '_');
+		}
+		else {
+			name = name.replace('$', '_');
+		}
+		try {
+			Class<?> binder = Class.forName(name.concat(ConfigurationBinder.SUFFIX), true, type.getClassLoader());
+			Constructor<?> constructor = binder.getDeclaredConstructor();
+			constructor.setAccessible(true);
+			
+			return (ConfigurationBinder) constructor.newInstance();
+			
+		} catch (ClassNotFoundException e) {
+			// No binder was generated for this class and its configurations will be bound by reflection
+		} catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+			logger.warn("Unable to load configuration binder of {}: {}", type.getName(), e.getMessage());
+		}
+		return field -> null;
+	}
+
+	private static String parseSection(String section) {
+		if (section.isEmpty() || section.equals(Configuration.SECTION_DEFAULT)) {
+			return null;
+		}
+		return section;
+	}
+
+	private static Scale parseScale(Class<?> type, double scale) {
+		if (scale == 1) {
+			return Scale.NONE;
+		}
+		if (type.isAssignableFrom(short.class) || type.isAssignableFrom(Short.class)) {
+			return Scale.SHORT;
+		}
+		else if (type.isAssignableFrom(int.class) || type.isAssignableFrom(Integer.class)) {
+			return Scale.INTEGER;
+		}
+		else if (type.isAssignableFrom(long.class) || type.isAssignableFrom(Long.class)) {
+			return Scale.LONG;
+		}
+		else if (type.isAssignableFrom(float.class) || type.isAssignableFrom(Float.class)) {
+			return Scale.FLOAT;
+		}
+		else if (type.isAssignableFrom(double.class) || type.isAssignableFrom(Double.class)) {
+			return Scale.DOUBLE;
+		}
+		return Scale.NONE;
+	}
+
+	/**
+	 * Resolves the static valueOf(String) method of types, not natively supported by {@link Configurations}.
+	 * Returns null if the conversion is left to {@link Configurations#get(String, String, Class)}.
+	 */
+	private static MethodHandle parseConverter(Class<?> type) {
+		for (Class<?> supported : new Class<?>[] {
+				boolean.class, Boolean.class,
+				byte.class, Byte.class,
+				short.class, Short.class,
+				int.class, Integer.class,
+				long.class, Long.class,
+				float.class, Float.class,
+				double.class, Double.class,
+				String.class, InetAddress.class }) {
+			if (type.isAssignableFrom(supported)) {
+				return null;
+			}
+		}
+		try {
+			Method method = type.getMethod("valueOf", String.class);
+			if (!Modifier.isStatic(method.getModifiers())) {
+				return null;
+			}
+			return LOOKUP.unreflect(method)
+					.asType(MethodType.methodType(Object.class, String.class));
+			
+		} catch (NoSuchMethodException | IllegalAccessException | SecurityException e) {
+			return null;
+		}
+	}
+
+	private static MethodHandle parseSetter(Field field) {
+		try {
+			field.setAccessible(true);
+			MethodHandle setter = LOOKUP.unreflectSetter(field);
+			if (Modifier.isStatic(field.getModifiers())) {
+				setter = MethodHandles.dropArguments(setter, 0, Object.class);
+			}
+			return setter.asType(SETTER_TYPE);
+			
+		} catch (IllegalAccessException | RuntimeException e) {
+			// Final fields can not be set by method handles and fall back to reflection
+			return FIELD_SETTER.bindTo(field);
+		}
+	}
+
+	private static String parseKey(String[] keys, AnnotatedElement element) {
+		String key = keys[0];
+		if (key.isEmpty() || key.equals(Configuration.VALUE_DEFAULT)) {
+			String name;
+			if (element instanceof Field) {
+				name = ((Field) element).getName();
+			}
+			else {
+				name = ((Method) element).getName();
+				if (name.startsWith("get")) {
+					name = name.substring(3);
+				}
+			}
+			key = parseKey(name);
+		}
+		return key;
+	}
+
+	private static String parseKey(String key) {
+		LinkedList<String> result = new LinkedList<String>();
+		for (String str : key.split("(?<!(^|[A-Z]))(?=[A-Z])|(?<!^)(?=[A-Z][a-z])")) {
+			result.add(str.toLowerCase());
+		}
+		return String.join("_", result);
+	}
+
+}
@@ -19,17 +19,47 @@
  */
 package org.the.ems.core;
 
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
 import org.the.ems.core.data.Channel;
 import org.the.ems.core.data.InvalidValueException;
 import org.the.ems.core.data.UnknownChannelException;
 import org.the.ems.core.data.Value;
 import org.the.ems.core.data.ValueList;
 import org.the.ems.core.data.ValueListener;
+import org.the.ems.core.data.WriteContainer;
+import org.the.ems.core.data.WriteException;
+import org.the.ems.core.data.WriteStatistics;
 
 public interface ContentManagementService {
 
 	public Channel getChannel(String id) throws UnknownChannelException;
 
+	public Channel getChannel(int handle) throws UnknownChannelException;
+
+	/**
+	 * Resolve all channels for the given IDs in bulk, e.g. all values referenced by component 
+	 * configurations, before the components get activated. IDs of unknown channels will be ignored.
+	 * 
+	 * @param ids the IDs of channels to resolve
+	 */
+	public default void preload(Collection<String> ids) {
+		for (String id : ids) {
+			try {
+				getChannel(id);
+				
+			} catch (UnknownChannelException e) {
+				// Ignore values not referencing a channel
+			}
+		}
+	}
+
 	public void registerValueListener(String id, ValueListener listener) throws UnknownChannelException;
 
 	public void deregisterValueListener(String id, ValueListener listener) throws UnknownChannelException;
@@ -38,10 +68,90 @@ public interface ContentManagementService {
 
 	public Value getLatestValue(String id) throws UnknownChannelException, InvalidValueException;
 
+	/**
+	 * Get a snapshot of the latest values of several channels at once.
+	 * Channels without a valid latest value will not be contained in the snapshot.
+	 * <p>
+	 * The default implementation reads the channels one by one, so the values are only consistent 
+	 * across channels, if the implementing service overrides this.
+	 * 
+	 * @param ids the IDs of the channels to read
+	 * 
+	 * @return the immutable map of latest values by channel ID
+	 * 
+	 * @throws UnknownChannelException if any of the IDs does not reference a channel
+	 */
+	public default Map<String, Value> getLatestValues(Collection<String> ids) throws UnknownChannelException {
+		Map<String, Value> values = new LinkedHashMap<String, Value>();
+		for (String id : ids) {
+			try {
+				values.put(id, getLatestValue(id));
+				
+			} catch (InvalidValueException e) {
+				// Skip channels without a valid value
+			}
+		}
+		return Collections.unmodifiableMap(values);
+	}
+
+	/**
+	 * Get a snapshot of the latest values of several channels at once, identified by their handles.
+	 * <p>
+	 * Implementations may read channels, that did not receive any value yet, individually. 
+	 * Their values are not guaranteed to be consistent with the rest of the snapshot.
+	 * 
+	 * @see #getLatestValues(Collection)
+	 * 
+	 * @param handles the handles of the channels to read
+	 * 
+	 * @return the immutable list of latest values, in the order of the handles, 
+	 * with null for channels without a valid latest value
+	 * 
+	 * @throws UnknownChannelException if any of the handles does not reference a channel
+	 */
+	public default List<Value> getLatestValues(int... handles) throws UnknownChannelException {
+		Value[] values = new Value[handles.length];
+		for (int i = 0; i < handles.length; i++) {
+			try {
+				values[i] = getChannel(handles[i]).getLatestValue();
+				
+			} catch (InvalidValueException e) {
+				// Leave channels without a valid value empty
+			}
+		}
+		return Collections.unmodifiableList(Arrays.asList(values));
+	}
+
 	public void setLatestValue(String id, Value value) throws UnknownChannelException;
 
 	public void write(String id, Value value) throws UnknownChannelException, EnergyManagementException;
 
 	public void write(String id, ValueList values) throws UnknownChannelException, EnergyManagementException;
 
+	/**
+	 * Write all values of a container at once. Implementations may group the values 
+	 * by device, to write all channels of a device in a single transaction.
+	 * 
+	 * @param container the values to write by channel
+	 * 
+	 * @throws WriteException if values were written, but flagged as failed for some channels
+	 * @throws EnergyManagementException if any value could not be written
+	 */
+	public default void write(WriteContainer container) throws EnergyManagementException {
+		for (Entry<Channel, ValueList> channel : container.entrySet()) {
+			channel.getKey().write(channel.getValue());
+		}
+	}
+
+	/**
+	 * Get the statistics of all batches written via {@link #write(WriteContainer)}, 
+	 * e.g. to monitor the latency of device transactions.
+	 * 
+	 * @return the current write statistics
+	 */
+	public default WriteStatistics getWriteStatistics() {
+		// Default implementation to be overridden
+		return new WriteStatistics();
+	}
+
 }
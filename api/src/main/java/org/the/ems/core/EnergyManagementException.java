@@ -38,4 +38,8 @@ public class EnergyManagementException extends Exception {
 		super(s, cause);
 	}
 
+	protected EnergyManagementException(String s, Throwable cause, boolean enableSuppression, boolean writableStackTrace) {
+		super(s, cause, enableSuppression, writableStackTrace);
+	}
+
 }
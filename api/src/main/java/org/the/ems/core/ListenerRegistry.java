@@ -0,0 +1,125 @@
+/* 
+ * Copyright 2016-2021 ISC Konstanz
+ * 
+ * This file is part of TH-E-EMS.
+ * For more information visit https://github.com/isc-konstanz/th-e-ems
+ * 
+ * TH-E-EMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * TH-E-EMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with TH-E-EMS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.the.ems.core;
+
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Copy-on-write registry of listeners.
+ * <p>
+ * Listeners are held in an immutable array snapshot, which will be atomically swapped on every 
+ * registration. Dispatching threads may loop over the snapshot returned by {@link #get()} without 
+ * any locking, while registrations happening concurrently only take effect for following dispatches.
+ *
+ * @param <L> the type of listeners to register
+ */
+public class ListenerRegistry<L> {
+
+	private final L[] empty;
+
+	private final AtomicReference<L[]> listeners;
+
+	@SuppressWarnings("unchecked")
+	public ListenerRegistry(Class<L> type) {
+		this.empty = (L[]) Array.newInstance(type, 0);
+		this.listeners = new AtomicReference<L[]>(empty);
+	}
+
+	/**
+	 * Get the current snapshot of registered listeners. 
+	 * The returned array is shared and must not be modified.
+	 * 
+	 * @return the array of registered listeners
+	 */
+	public L[] get() {
+		return listeners.get();
+	}
+
+	public int size() {
+		return listeners.get().length;
+	}
+
+	public boolean isEmpty() {
+		return listeners.get().length == 0;
+	}
+
+	public boolean contains(L listener) {
+		return indexOf(listeners.get(), listener) >= 0;
+	}
+
+	public boolean add(L listener) {
+		if (listener == null) {
+			throw new NullPointerException();
+		}
+		L[] current;
+		L[] updated;
+		do {
+			current = listeners.get();
+			if (indexOf(current, listener) >= 0) {
+				return false;
+			}
+			updated = Arrays.copyOf(current, current.length + 1);
+			updated[current.length] = listener;
+			
+		} while (!listeners.compareAndSet(current, updated));
+		return true;
+	}
+
+	public boolean remove(L listener) {
+		L[] current;
+		L[] updated;
+		do {
+			current = listeners.get();
+			int index = indexOf(current, listener);
+			if (index < 0) {
+				return false;
+			}
+			if (current.length == 1) {
+				updated = empty;
+			}
+			else {
+				updated = Arrays.copyOf(current, current.length - 1);
+				System.arraycopy(current, index + 1, updated, index, current.length - index - 1);
+			}
+		} while (!listeners.compareAndSet(current, updated));
+		return true;
+	}
+
+	/**
+	 * Remove all registered listeners.
+	 * 
+	 * @return the snapshot of listeners registered before they were removed
+	 */
+	public L[] clear() {
+		return listeners.getAndSet(empty);
+	}
+
+	private static int indexOf(Object[] listeners, Object listener) {
+		for (int i = 0; i < listeners.length; i++) {
+			if (listeners[i].equals(listener)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+}
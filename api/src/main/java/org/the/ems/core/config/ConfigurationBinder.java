@@ -0,0 +1,45 @@
+/* 
+ * Copyright 2016-2021 ISC Konstanz
+ * 
+ * This file is part of TH-E-EMS.
+ * For more information visit https://github.com/isc-konstanz/th-e-ems
+ * 
+ * TH-E-EMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * TH-E-EMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with TH-E-EMS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.the.ems.core.config;
+
+/**
+ * Binder of the {@link Configuration} annotated fields, declared by a single class.
+ * <p>
+ * Binders are generated at compile time by the configuration annotation processor into the package of 
+ * the annotated class, named after the class with nested class names separated by underscores and the 
+ * {@link #SUFFIX} appended. Classes without a generated binder are bound by reflection.
+ */
+public interface ConfigurationBinder {
+
+	public final static String SUFFIX = "_ConfigurationBinder";
+
+	/**
+	 * Returns the typed converter of the annotated field or null, if the field is not converted by this binder.
+	 */
+	Converter getConverter(String field);
+
+	@FunctionalInterface
+	public static interface Converter {
+
+		Object convert(Configurations configs, String section, String key) throws ConfigurationException;
+
+	}
+
+}
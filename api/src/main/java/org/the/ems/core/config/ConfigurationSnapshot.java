@@ -0,0 +1,438 @@
+/* 
+ * Copyright 2016-2021 ISC Konstanz
+ * 
+ * This file is part of TH-E-EMS.
+ * For more information visit https://github.com/isc-konstanz/th-e-ems
+ * 
+ * TH-E-EMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * TH-E-EMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with TH-E-EMS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.the.ems.core.config;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Immutable snapshot of {@link Configurations}.
+ * <p>
+ * Snapshots, derived from another snapshot only hold their changed keys and share all 
+ * remaining entries with their parent. Reads do not need to acquire any lock.
+ */
+public final class ConfigurationSnapshot extends Configurations {
+	private static final long serialVersionUID = -2863013738129384713L;
+
+	private final static int DEPTH_MAX = 8;
+
+	private final ConfigurationSnapshot parent;
+
+	private final Map<String, Object> values;
+
+	private final Set<String> removed;
+
+	private final Map<String, NavigableSet<String>> sections;
+
+	private final int depth;
+
+	private final int size;
+
+	private volatile Map<String, Object> entries = null;
+
+	private ConfigurationSnapshot(Map<String, Object> values) {
+		this.parent = null;
+		this.values = values;
+		this.removed = Collections.emptySet();
+		this.depth = 0;
+		this.size = values.size();
+		
+		Map<String, NavigableSet<String>> sections = new HashMap<String, NavigableSet<String>>();
+		for (String key : values.keySet()) {
+			String section = parseSectionOf(key);
+			if (section != null) {
+				sections.computeIfAbsent(section, s -> new TreeSet<String>()).add(key);
+			}
+		}
+		for (Entry<String, NavigableSet<String>> section : sections.entrySet()) {
+			section.setValue(Collections.unmodifiableNavigableSet(section.getValue()));
+		}
+		this.sections = sections;
+	}
+
+	private ConfigurationSnapshot(ConfigurationSnapshot parent, Map<String, Object> values, Set<String> removed) {
+		this.parent = parent;
+		this.values = values;
+		this.removed = removed;
+		this.depth = parent.depth + 1;
+		
+		int size = parent.size - removed.size();
+		Map<String, NavigableSet<String>> changed = new HashMap<String, NavigableSet<String>>();
+		for (String key : values.keySet()) {
+			if (!parent.containsKey(key)) {
+				NavigableSet<String> keys = getChangedSection(parent, changed, key);
+				if (keys != null) {
+					keys.add(key);
+				}
+				size++;
+			}
+		}
+		for (String key : removed) {
+			NavigableSet<String> keys = getChangedSection(parent, changed, key);
+			if (keys != null) {
+				keys.remove(key);
+			}
+		}
+		this.size = size;
+		
+		Map<String, NavigableSet<String>> sections = parent.sections;
+		if (!changed.isEmpty()) {
+			sections = new HashMap<String, NavigableSet<String>>(parent.sections);
+			for (Entry<String, NavigableSet<String>> section : changed.entrySet()) {
+				if (section.getValue().isEmpty()) {
+					sections.remove(section.getKey());
+				}
+				else {
+					sections.put(section.getKey(), Collections.unmodifiableNavigableSet(section.getValue()));
+				}
+			}
+		}
+		this.sections = sections;
+	}
+
+	private static NavigableSet<String> getChangedSection(ConfigurationSnapshot parent, 
+			Map<String, NavigableSet<String>> changed, String key) {
+		String section = parseSectionOf(key);
+		if (section == null) {
+			return null;
+		}
+		return changed.computeIfAbsent(section, s -> {
+			NavigableSet<String> keys = parent.sections.get(s);
+			return keys != null ? new TreeSet<String>(keys) : new TreeSet<String>();
+		});
+	}
+
+	static ConfigurationSnapshot copyOf(Map<String, ?> properties) {
+		Map<String, Object> values = new HashMap<String, Object>(properties.size());
+		for (Entry<String, ?> entry : properties.entrySet()) {
+			if (entry.getKey() != null && entry.getValue() != null) {
+				values.put(entry.getKey(), entry.getValue());
+			}
+		}
+		return new ConfigurationSnapshot(values);
+	}
+
+	/**
+	 * Returns a builder for a new snapshot, that shares all unchanged entries with this snapshot.
+	 */
+	public Builder derive() {
+		return new Builder(this);
+	}
+
+	public static Builder builder() {
+		return new Builder(null);
+	}
+
+	private Map<String, Object> getEntries() {
+		Map<String, Object> entries = this.entries;
+		if (entries == null) {
+			if (parent == null) {
+				entries = Collections.unmodifiableMap(values);
+			}
+			else {
+				Map<String, Object> merged = new HashMap<String, Object>(parent.getEntries());
+				merged.keySet().removeAll(removed);
+				merged.putAll(values);
+				entries = Collections.unmodifiableMap(merged);
+			}
+			this.entries = entries;
+		}
+		return entries;
+	}
+
+	@Override
+	NavigableSet<String> getSectionKeys(String section) {
+		NavigableSet<String> keys = sections.get(parseSection(section));
+		if (keys == null) {
+			return Collections.emptyNavigableSet();
+		}
+		return keys;
+	}
+
+	@Override
+	public Set<String> getSections() {
+		return Collections.unmodifiableSet(sections.keySet());
+	}
+
+	@Override
+	public List<String> search(String section, String pattern) {
+		return search(getSectionKeys(section), section, pattern);
+	}
+
+	@Override
+	public ConfigurationSnapshot snapshot() {
+		return this;
+	}
+
+	@Override
+	public Object get(Object key) {
+		for (ConfigurationSnapshot snapshot = this; snapshot != null; snapshot = snapshot.parent) {
+			Object value = snapshot.values.get(key);
+			if (value != null) {
+				return value;
+			}
+			if (snapshot.removed.contains(key)) {
+				return null;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public Object getOrDefault(Object key, Object defaultValue) {
+		Object value = get(key);
+		return value != null ? value : defaultValue;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return get(key) != null;
+	}
+
+	@Override
+	public boolean contains(Object value) {
+		return getEntries().containsValue(value);
+	}
+
+	@Override
+	public boolean containsValue(Object value) {
+		return getEntries().containsValue(value);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public Enumeration<String> keys() {
+		return Collections.enumeration(getEntries().keySet());
+	}
+
+	@Override
+	public Enumeration<Object> elements() {
+		return Collections.enumeration(getEntries().values());
+	}
+
+	@Override
+	public Set<String> keySet() {
+		return getEntries().keySet();
+	}
+
+	@Override
+	public Collection<Object> values() {
+		return getEntries().values();
+	}
+
+	@Override
+	public Set<Entry<String, Object>> entrySet() {
+		return getEntries().entrySet();
+	}
+
+	@Override
+	public void forEach(BiConsumer<? super String, ? super Object> action) {
+		getEntries().forEach(action);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		return o == this || getEntries().equals(o);
+	}
+
+	@Override
+	public int hashCode() {
+		return getEntries().hashCode();
+	}
+
+	@Override
+	public ConfigurationSnapshot clone() {
+		return this;
+	}
+
+	@Override
+	public Object put(String key, Object value) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void putAll(Map<? extends String, ? extends Object> map) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public Object putIfAbsent(String key, Object value) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public Object remove(Object key) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public boolean remove(Object key, Object value) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public Object replace(String key, Object value) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public boolean replace(String key, Object oldValue, Object newValue) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void replaceAll(BiFunction<? super String, ? super Object, ? extends Object> function) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public Object computeIfAbsent(String key, Function<? super String, ? extends Object> mappingFunction) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public Object computeIfPresent(String key, 
+			BiFunction<? super String, ? super Object, ? extends Object> remappingFunction) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public Object compute(String key, 
+			BiFunction<? super String, ? super Object, ? extends Object> remappingFunction) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public Object merge(String key, Object value, 
+			BiFunction<? super Object, ? super Object, ? extends Object> remappingFunction) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void clear() {
+		throw new UnsupportedOperationException();
+	}
+
+	private Object writeReplace() {
+		return Configurations.create(getEntries());
+	}
+
+	public static final class Builder {
+
+		private final ConfigurationSnapshot parent;
+
+		private Map<String, Object> values = new HashMap<String, Object>();
+
+		private Set<String> removed = new HashSet<String>();
+
+		private Builder(ConfigurationSnapshot parent) {
+			this.parent = parent;
+		}
+
+		public Builder put(String key, Object value) {
+			if (value == null) {
+				throw new NullPointerException();
+			}
+			removed.remove(key);
+			values.put(key, value);
+			return this;
+		}
+
+		public Builder put(String section, String key, Object value) {
+			return put(parseSectionKey(section, key), value);
+		}
+
+		public Builder putAll(Map<String, ?> properties) {
+			for (Entry<String, ?> entry : properties.entrySet()) {
+				put(entry.getKey(), entry.getValue());
+			}
+			return this;
+		}
+
+		public Builder remove(String key) {
+			values.remove(key);
+			if (parent != null && parent.containsKey(key)) {
+				removed.add(key);
+			}
+			return this;
+		}
+
+		public Builder remove(String section, String key) {
+			return remove(parseSectionKey(section, key));
+		}
+
+		/**
+		 * Removes all keys of a parsed section name, as returned by {@link Configurations#getSections()}.
+		 */
+		public Builder removeSection(String section) {
+			if (parent != null) {
+				NavigableSet<String> keys = parent.sections.get(section);
+				if (keys != null) {
+					removed.addAll(keys);
+				}
+			}
+			values.keySet().removeIf(k -> section.equals(parseSectionOf(k)));
+			return this;
+		}
+
+		public ConfigurationSnapshot build() {
+			Map<String, Object> values = this.values;
+			Set<String> removed = this.removed;
+			this.values = new HashMap<String, Object>();
+			this.removed = new HashSet<String>();
+			
+			if (parent == null) {
+				return new ConfigurationSnapshot(values);
+			}
+			if (values.isEmpty() && removed.isEmpty()) {
+				return parent;
+			}
+			if (parent.depth >= DEPTH_MAX || values.size() + removed.size() > parent.size/2) {
+				Map<String, Object> merged = new HashMap<String, Object>(parent.getEntries());
+				merged.keySet().removeAll(removed);
+				merged.putAll(values);
+				return new ConfigurationSnapshot(merged);
+			}
+			return new ConfigurationSnapshot(parent, values, removed);
+		}
+	}
+
+}
@@ -24,13 +24,26 @@ import java.lang.reflect.Method;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.text.MessageFormat;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Hashtable;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NavigableSet;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 public class Configurations extends Hashtable<String, Object> {
 	private static final long serialVersionUID = 7726428276708545480L;
@@ -39,6 +52,16 @@ public class Configurations extends Hashtable<String, Object> {
 	public final static String ENABLED = "enabled";
 	public final static String DISABLED = "disabled";
 
+	private final static Map<String, Pattern> patterns = new ConcurrentHashMap<String, Pattern>();
+
+	private final static Pattern GLOB = Pattern.compile("[?*]");
+
+	/**
+	 * Index of all keys of a section, maintained on every put and lazily rebuilt 
+	 * after cloning or deserialization.
+	 */
+	private transient Map<String, NavigableSet<String>> sections;
+
 	protected Configurations() {
 	}
 
@@ -60,6 +83,106 @@ public class Configurations extends Hashtable<String, Object> {
 		put(entry.getKey(), entry.getValue());
 	}
 
+	@Override
+	public synchronized Object put(String key, Object value) {
+		Object previous = super.put(key, value);
+		if (previous == null) {
+			index(key);
+		}
+		return previous;
+	}
+
+	@Override
+	public synchronized Object putIfAbsent(String key, Object value) {
+		Object previous = super.putIfAbsent(key, value);
+		if (previous == null) {
+			index(key);
+		}
+		return previous;
+	}
+
+	@Override
+	public synchronized Object computeIfAbsent(String key, 
+			Function<? super String, ? extends Object> mappingFunction) {
+		Object value = super.computeIfAbsent(key, mappingFunction);
+		if (value != null) {
+			index(key);
+		}
+		return value;
+	}
+
+	@Override
+	public synchronized Object compute(String key, 
+			BiFunction<? super String, ? super Object, ? extends Object> remappingFunction) {
+		Object value = super.compute(key, remappingFunction);
+		if (value != null) {
+			index(key);
+		}
+		return value;
+	}
+
+	@Override
+	public synchronized Object merge(String key, Object value, 
+			BiFunction<? super Object, ? super Object, ? extends Object> remappingFunction) {
+		Object merged = super.merge(key, value, remappingFunction);
+		if (merged != null) {
+			index(key);
+		}
+		return merged;
+	}
+
+	@Override
+	public synchronized Object remove(Object key) {
+		Object previous = super.remove(key);
+		if (previous != null && sections != null) {
+			NavigableSet<String> keys = sections.get(parseSectionOf((String) key));
+			if (keys != null) {
+				keys.remove(key);
+			}
+		}
+		return previous;
+	}
+
+	@Override
+	public synchronized void clear() {
+		super.clear();
+		sections = null;
+	}
+
+	private void index(String key) {
+		if (sections == null) {
+			getSectionIndex();
+			return;
+		}
+		String section = parseSectionOf(key);
+		if (section != null) {
+			sections.computeIfAbsent(section, s -> new TreeSet<String>()).add(key);
+		}
+	}
+
+	private Map<String, NavigableSet<String>> getSectionIndex() {
+		if (sections == null) {
+			sections = new HashMap<String, NavigableSet<String>>();
+			for (String key : keySet()) {
+				index(key);
+			}
+		}
+		return sections;
+	}
+
+	/**
+	 * Returns the indexed keys of a section. Keys, removed through iterators of the table 
+	 * itself bypass the index and will be pruned here.
+	 */
+	synchronized NavigableSet<String> getSectionKeys(String section) {
+		NavigableSet<String> keys = getSectionIndex().get(parseSection(section));
+		if (keys == null) {
+			return Collections.emptyNavigableSet();
+		}
+		keys.removeIf(k -> !super.containsKey(k));
+		return keys;
+	}
+
 	public Object put(String section, String key, Object value) {
 		return put(parseSectionKey(section, key), value);
 	}
@@ -72,19 +195,30 @@ public class Configurations extends Hashtable<String, Object> {
 		return containsKey(parseSectionKey(section, key));
 	}
 
+	/**
+	 * Returns the parsed names of all sections, containing at least one key.
+	 */
+	public synchronized Set<String> getSections() {
+		Set<String> sections = new TreeSet<String>();
+		for (Entry<String, NavigableSet<String>> section : getSectionIndex().entrySet()) {
+			section.getValue().removeIf(k -> !super.containsKey(k));
+			if (!section.getValue().isEmpty()) {
+				sections.add(section.getKey());
+			}
+		}
+		return Collections.unmodifiableSet(sections);
+	}
+
 	public boolean containsSection(String section) {
-		String parsedSection = parseSection(section);
-		return keySet().stream().anyMatch(k -> k.startsWith(parsedSection));
+		return !getSectionKeys(section).isEmpty();
 	}
 
-	public Configurations getSection(String section) {
-		String parsedSection = parseSection(section);
-		return new Configurations(
-				entrySet().stream()
-						.filter(e -> e.getKey().startsWith(parsedSection))
-						.collect(Collectors.toMap(
-								e -> e.getKey(), 
-								e -> e.getValue())));
+	/**
+	 * Returns an unmodifiable view of all configurations of a section, 
+	 * mapped by their complete section key.
+	 */
+	public Map<String, Object> getSection(String section) {
+		return new SectionView(section);
 	}
 
 	public String get(String section, String key) {
@@ -183,16 +317,44 @@ public class Configurations extends Hashtable<String, Object> {
 		}
 	}
 
-	public List<String> search(String section, String pattern) {
+	public synchronized List<String> search(String section, String pattern) {
+		return search(getSectionKeys(section), section, pattern);
+	}
+
+	/**
+	 * Searches the passed section keys for the key pattern, which may contain ? and * wildcards.
+	 */
+	public static List<String> search(Collection<String> keys, String section, String pattern) {
 		List<String> result = new ArrayList<String>();
-		for (Entry<String, Object> entry : entrySet()) {
-			if (entry.getKey().matches(parseSectionKey(section, pattern).replace("?", ".?").replace("*", ".*?"))) {
-				result.add(entry.getKey().substring(parseSection(section).length()+1));
+		String sectionKey = parseSectionKey(section, "");
+		int prefix = sectionKey.length();
+		Matcher matcher = parsePattern(pattern).matcher("");
+		for (String key : keys) {
+			if (key.startsWith(sectionKey) && matcher.reset(key).region(prefix, key.length()).matches()) {
+				result.add(key.substring(prefix));
 			}
 		}
 		return result;
 	}
 
+	/**
+	 * Returns all keys, whose values differ in the passed configurations, including added and removed keys.
+	 */
+	public synchronized Set<String> diff(Map<String, ?> configs) {
+		Set<String> keys = new HashSet<String>();
+		for (Entry<String, Object> entry : entrySet()) {
+			if (!entry.getValue().equals(configs.get(entry.getKey()))) {
+				keys.add(entry.getKey());
+			}
+		}
+		for (String key : configs.keySet()) {
+			if (!containsKey(key)) {
+				keys.add(key);
+			}
+		}
+		return keys;
+	}
+
 	public Boolean isEnabled(String section) {
 		if (!containsSection(section)) {
 			return false;
@@ -230,7 +392,34 @@ public class Configurations extends Hashtable<String, Object> {
 		return result.toString();
 	}
 
-	static String parseSectionKey(String section, String key) {
+	static String parseSectionOf(String key) {
+		int index = key.indexOf('.');
+		if (index < 0) {
+			return null;
+		}
+		return key.substring(0, index);
+	}
+
+	private static Pattern parsePattern(String pattern) {
+		return patterns.computeIfAbsent(pattern.toLowerCase(), p -> {
+			StringBuilder regex = new StringBuilder();
+			Matcher matcher = GLOB.matcher(p);
+			int index = 0;
+			while (matcher.find()) {
+				if (matcher.start() > index) {
+					regex.append(Pattern.quote(p.substring(index, matcher.start())));
+				}
+				regex.append(matcher.group().equals("?") ? ".?" : ".*?");
+				index = matcher.end();
+			}
+			if (index < p.length()) {
+				regex.append(Pattern.quote(p.substring(index)));
+			}
+			return Pattern.compile(regex.toString());
+		});
+	}
+
+	public static String parseSectionKey(String section, String key) {
 		StringBuilder result = new StringBuilder()
 				.append(parseSection(section)).append(".")
 				.append(key.toLowerCase());
@@ -238,9 +427,73 @@ public class Configurations extends Hashtable<String, Object> {
 		return result.toString();
 	}
 
+	/**
+	 * Returns an immutable snapshot of the current configurations.
+	 */
+	public synchronized ConfigurationSnapshot snapshot() {
+		return ConfigurationSnapshot.copyOf(this);
+	}
+
 	@Override
-	public Configurations clone() {
-		return (Configurations) super.clone();
+	public synchronized Configurations clone() {
+		Configurations clone = (Configurations) super.clone();
+		clone.sections = null;
+		return clone;
+	}
+
+	private class SectionView extends AbstractMap<String, Object> {
+
+		private final String section;
+
+		private final String prefix;
+
+		private SectionView(String section) {
+			this.section = section;
+			this.prefix = parseSection(section).concat(".");
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return key instanceof String && ((String) key).startsWith(prefix) && 
+					Configurations.this.containsKey(key);
+		}
+
+		@Override
+		public Object get(Object key) {
+			if (!(key instanceof String) || !((String) key).startsWith(prefix)) {
+				return null;
+			}
+			return Configurations.this.get(key);
+		}
+
+		@Override
+		public Set<Entry<String, Object>> entrySet() {
+			return new AbstractSet<Entry<String, Object>>() {
+
+				@Override
+				public int size() {
+					return getSectionKeys(section).size();
+				}
+
+				@Override
+				public Iterator<Entry<String, Object>> iterator() {
+					Iterator<String> keys = getSectionKeys(section).iterator();
+					return new Iterator<Entry<String, Object>>() {
+
+						@Override
+						public boolean hasNext() {
+							return keys.hasNext();
+						}
+
+						@Override
+						public Entry<String, Object> next() {
+							String key = keys.next();
+							return new SimpleImmutableEntry<String, Object>(key, Configurations.this.get(key));
+						}
+					};
+				}
+			};
+		}
 	}
 
 	@SuppressWarnings("unchecked")
@@ -252,4 +505,18 @@ public class Configurations extends Hashtable<String, Object> {
 		return new Configurations();
 	}
 
+	/**
+	 * Returns an immutable snapshot of the passed properties, or the properties themselves
+	 * if they already are a snapshot.
+	 */
+	public static ConfigurationSnapshot snapshot(Map<String, ?> properties) {
+		if (properties instanceof ConfigurationSnapshot) {
+			return (ConfigurationSnapshot) properties;
+		}
+		if (properties instanceof Configurations) {
+			return ((Configurations) properties).snapshot();
+		}
+		return ConfigurationSnapshot.copyOf(properties);
+	}
+
 }
@@ -21,8 +21,11 @@ package org.the.ems.core.data;
 
 public class BooleanValue extends NumberValue {
 
+	protected final boolean value;
+
 	public BooleanValue(boolean value, long timestamp) {
-		super(ValueType.BOOLEAN, (value ? 1 : 0), timestamp);
+		super(ValueType.BOOLEAN, timestamp);
+		this.value = value;
 	}
 
 	public BooleanValue(boolean value) {
@@ -35,7 +38,42 @@ public class BooleanValue extends NumberValue {
 
 	@Override
 	public String stringValue() {
-		return Boolean.toString(booleanValue());
+		return Boolean.toString(value);
+	}
+
+	@Override
+	public double doubleValue() {
+		return value ? 1 : 0;
+	}
+
+	@Override
+	public float floatValue() {
+		return value ? 1 : 0;
+	}
+
+	@Override
+	public long longValue() {
+		return value ? 1 : 0;
+	}
+
+	@Override
+	public int intValue() {
+		return value ? 1 : 0;
+	}
+
+	@Override
+	public short shortValue() {
+		return (short) (value ? 1 : 0);
+	}
+
+	@Override
+	public byte byteValue() {
+		return (byte) (value ? 1 : 0);
+	}
+
+	@Override
+	public boolean booleanValue() {
+		return value;
 	}
 
 	public static BooleanValue copy(Value value) {
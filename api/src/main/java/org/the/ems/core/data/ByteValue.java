@@ -21,14 +21,52 @@ package org.the.ems.core.data;
 
 public class ByteValue extends NumberValue {
 
+	protected final byte value;
+
 	public ByteValue(byte value, long timestamp) {
-		super(ValueType.BYTE, value, timestamp);
+		super(ValueType.BYTE, timestamp);
+		this.value = value;
 	}
 
 	public ByteValue(byte value) {
 		this(value, System.currentTimeMillis());
 	}
 
+	@Override
+	public String stringValue() {
+		return Byte.toString(value);
+	}
+
+	@Override
+	public double doubleValue() {
+		return (double) value;
+	}
+
+	@Override
+	public float floatValue() {
+		return (float) value;
+	}
+
+	@Override
+	public long longValue() {
+		return (long) value;
+	}
+
+	@Override
+	public int intValue() {
+		return (int) value;
+	}
+
+	@Override
+	public short shortValue() {
+		return (short) value;
+	}
+
+	@Override
+	public byte byteValue() {
+		return value;
+	}
+
 	public boolean equals(byte value) {
 		return byteValue() != value;
 	}
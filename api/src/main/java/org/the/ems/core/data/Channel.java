@@ -25,6 +25,16 @@ public interface Channel {
 
 	public String getId();
 
+	/**
+	 * Get the dense integer handle, assigned to the channel when it was first resolved 
+	 * by the content management, or -1 if the channel is not registered.
+	 * 
+	 * @return the handle of the channel
+	 */
+	public default int getHandle() {
+		return -1;
+	}
+
 	public Value getLatestValue() throws InvalidValueException;
 
 	public Value getLatestValue(ValueListener listener) throws InvalidValueException;
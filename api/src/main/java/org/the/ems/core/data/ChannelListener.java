@@ -19,14 +19,12 @@
  */
 package org.the.ems.core.data;
 
-import java.util.LinkedList;
-import java.util.List;
-
 import org.the.ems.core.EnergyManagementException;
+import org.the.ems.core.ListenerRegistry;
 
 public class ChannelListener implements Channel {
 
-    private final List<ValueListener> listeners = new LinkedList<ValueListener>();
+    private final ListenerRegistry<ValueListener> listeners = new ListenerRegistry<ValueListener>(ValueListener.class);
 
     private final Channel channel;
 
@@ -39,6 +37,11 @@ public class ChannelListener implements Channel {
         return channel.getId();
     }
 
+    @Override
+    public int getHandle() {
+        return channel.getHandle();
+    }
+
     @Override
     public Value getLatestValue() throws InvalidValueException {
         return channel.getLatestValue();
@@ -52,31 +55,22 @@ public class ChannelListener implements Channel {
 
     @Override
     public void registerValueListener(ValueListener listener) {
-        synchronized(listeners) {
-            if (!listeners.contains(listener)) {
-                listeners.add(listener);
-                channel.registerValueListener(listener);
-            }
+        if (listeners.add(listener)) {
+            channel.registerValueListener(listener);
         }
     }
 
     @Override
     public void deregisterValueListener(ValueListener listener) {
-        synchronized(listeners) {
-            if (listeners.contains(listener)) {
-                listeners.remove(listener);
-                channel.deregisterValueListener(listener);
-            }
+        if (listeners.remove(listener)) {
+            channel.deregisterValueListener(listener);
         }
     }
 
 	@Override
 	public void deregisterValueListeners() {
-        synchronized(listeners) {
-            for (ValueListener listener : listeners) {
-                channel.deregisterValueListener(listener);
-            }
-            listeners.clear();
+        for (ValueListener listener : listeners.clear()) {
+            channel.deregisterValueListener(listener);
         }
     }
 
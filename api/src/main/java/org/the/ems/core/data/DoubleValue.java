@@ -21,14 +21,52 @@ package org.the.ems.core.data;
 
 public class DoubleValue extends NumberValue {
 
+	protected final double value;
+
 	public DoubleValue(double value, long timestamp) {
-		super(ValueType.DOUBLE, value, timestamp);
+		super(ValueType.DOUBLE, timestamp);
+		this.value = value;
 	}
 
 	public DoubleValue(double value) {
 		this(value, System.currentTimeMillis());
 	}
 
+	@Override
+	public String stringValue() {
+		return Double.toString(value);
+	}
+
+	@Override
+	public double doubleValue() {
+		return value;
+	}
+
+	@Override
+	public float floatValue() {
+		return (float) value;
+	}
+
+	@Override
+	public long longValue() {
+		return (long) value;
+	}
+
+	@Override
+	public int intValue() {
+		return (int) value;
+	}
+
+	@Override
+	public short shortValue() {
+		return (short) value;
+	}
+
+	@Override
+	public byte byteValue() {
+		return (byte) value;
+	}
+
 	public boolean isNaN() {
 		return Double.isNaN(doubleValue());
 	}
@@ -21,14 +21,52 @@ package org.the.ems.core.data;
 
 public class FloatValue extends NumberValue {
 
+	protected final float value;
+
 	public FloatValue(float value, long timestamp) {
-		super(ValueType.FLOAT, value, timestamp);
+		super(ValueType.FLOAT, timestamp);
+		this.value = value;
 	}
 
 	public FloatValue(float value) {
 		this(value, System.currentTimeMillis());
 	}
 
+	@Override
+	public String stringValue() {
+		return Float.toString(value);
+	}
+
+	@Override
+	public double doubleValue() {
+		return (double) value;
+	}
+
+	@Override
+	public float floatValue() {
+		return value;
+	}
+
+	@Override
+	public long longValue() {
+		return (long) value;
+	}
+
+	@Override
+	public int intValue() {
+		return (int) value;
+	}
+
+	@Override
+	public short shortValue() {
+		return (short) value;
+	}
+
+	@Override
+	public byte byteValue() {
+		return (byte) value;
+	}
+
 	public boolean isNaN() {
 		return Float.isNaN(floatValue());
 	}
@@ -21,14 +21,52 @@ package org.the.ems.core.data;
 
 public class IntValue extends NumberValue {
 
+	protected final int value;
+
 	public IntValue(int value, long timestamp) {
-		super(ValueType.INTEGER, value, timestamp);
+		super(ValueType.INTEGER, timestamp);
+		this.value = value;
 	}
 
 	public IntValue(int value) {
 		this(value, System.currentTimeMillis());
 	}
 
+	@Override
+	public String stringValue() {
+		return Integer.toString(value);
+	}
+
+	@Override
+	public double doubleValue() {
+		return (double) value;
+	}
+
+	@Override
+	public float floatValue() {
+		return (float) value;
+	}
+
+	@Override
+	public long longValue() {
+		return (long) value;
+	}
+
+	@Override
+	public int intValue() {
+		return value;
+	}
+
+	@Override
+	public short shortValue() {
+		return (short) value;
+	}
+
+	@Override
+	public byte byteValue() {
+		return (byte) value;
+	}
+
 	public boolean equals(int value) {
 		return intValue() != value;
 	}
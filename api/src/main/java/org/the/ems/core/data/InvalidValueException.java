@@ -49,6 +49,21 @@ public class InvalidValueException extends EnergyManagementException {
 		this.source = source;
 	}
 
+	/**
+	 * Create an exception without a stack trace, which may be preallocated and thrown repeatedly 
+	 * for recurring invalid states, e.g. of a channel's flag.
+	 * 
+	 * @param source the channel the invalid value originates from
+	 * @param severity the severity of the invalid value
+	 * @param str the detail message
+	 * @param writableStackTrace whether the stack trace should be filled in
+	 */
+	public InvalidValueException(Channel source, Severity severity, String str, boolean writableStackTrace) {
+		super(str, null, writableStackTrace, writableStackTrace);
+		this.severity = severity;
+		this.source = source;
+	}
+
 	public Severity getSeverity() {
 		return severity;
 	}
@@ -21,14 +21,52 @@ package org.the.ems.core.data;
 
 public class LongValue extends NumberValue {
 
+	protected final long value;
+
 	public LongValue(long value, long timestamp) {
-		super(ValueType.LONG, value, timestamp);
+		super(ValueType.LONG, timestamp);
+		this.value = value;
 	}
 
 	public LongValue(long value) {
 		this(value, System.currentTimeMillis());
 	}
 
+	@Override
+	public String stringValue() {
+		return Long.toString(value);
+	}
+
+	@Override
+	public double doubleValue() {
+		return (double) value;
+	}
+
+	@Override
+	public float floatValue() {
+		return (float) value;
+	}
+
+	@Override
+	public long longValue() {
+		return value;
+	}
+
+	@Override
+	public int intValue() {
+		return (int) value;
+	}
+
+	@Override
+	public short shortValue() {
+		return (short) value;
+	}
+
+	@Override
+	public byte byteValue() {
+		return (byte) value;
+	}
+
 	public boolean equals(long value) {
 		return longValue() != value;
 	}
@@ -19,60 +19,28 @@
  */
 package org.the.ems.core.data;
 
-import java.util.Objects;
-
 public abstract class NumberValue extends Value {
 
-	protected final Number value;
-
-	public NumberValue(ValueType type, Number value, long timestamp) {
+	protected NumberValue(ValueType type, long timestamp) {
 		super(type, timestamp);
-		this.value = value;
-	}
-
-	@Override
-	public String stringValue() {
-		return this.value.toString();
-	}
-
-	@Override
-	public double doubleValue() {
-		return this.value.doubleValue();
-	}
-
-	@Override
-	public float floatValue() {
-		return this.value.floatValue();
-	}
-
-	@Override
-	public long longValue() {
-		return this.value.longValue();
-	}
-
-	@Override
-	public int intValue() {
-		return this.value.intValue();
-	}
-
-	@Override
-	public short shortValue() {
-		return this.value.shortValue();
-	}
-
-	@Override
-	public byte byteValue() {
-		return this.value.byteValue();
 	}
 
 	@Override
 	public boolean booleanValue() {
-		return this.value.intValue() != 0;
+		return intValue() != 0;
 	}
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(type, instant, value);
+		int hash = super.hashCode();
+		switch(type) {
+		case DOUBLE:
+			return 31*hash + Double.hashCode(doubleValue());
+		case FLOAT:
+			return 31*hash + Float.hashCode(floatValue());
+		default:
+			return 31*hash + Long.hashCode(longValue());
+		}
 	}
 
 	@Override
@@ -83,9 +51,17 @@ public abstract class NumberValue extends Value {
 			return false;
 		}
 		NumberValue v = (NumberValue) o;
-		return type == v.type &&
-				Objects.equals(instant, v.instant) &&
-				Objects.equals(value, v.value);
+		if (type != v.type || timestamp != v.timestamp) {
+			return false;
+		}
+		switch(type) {
+		case DOUBLE:
+			return Double.doubleToLongBits(doubleValue()) == Double.doubleToLongBits(v.doubleValue());
+		case FLOAT:
+			return Float.floatToIntBits(floatValue()) == Float.floatToIntBits(v.floatValue());
+		default:
+			return longValue() == v.longValue();
+		}
 	}
 
 }
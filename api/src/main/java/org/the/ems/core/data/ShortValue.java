@@ -21,14 +21,52 @@ package org.the.ems.core.data;
 
 public class ShortValue extends NumberValue {
 
+	protected final short value;
+
 	public ShortValue(short value, long timestamp) {
-		super(ValueType.SHORT, value, timestamp);
+		super(ValueType.SHORT, timestamp);
+		this.value = value;
 	}
 
 	public ShortValue(short value) {
 		this(value, System.currentTimeMillis());
 	}
 
+	@Override
+	public String stringValue() {
+		return Short.toString(value);
+	}
+
+	@Override
+	public double doubleValue() {
+		return (double) value;
+	}
+
+	@Override
+	public float floatValue() {
+		return (float) value;
+	}
+
+	@Override
+	public long longValue() {
+		return (long) value;
+	}
+
+	@Override
+	public int intValue() {
+		return (int) value;
+	}
+
+	@Override
+	public short shortValue() {
+		return value;
+	}
+
+	@Override
+	public byte byteValue() {
+		return (byte) value;
+	}
+
 	public boolean equals(short value) {
 		return shortValue() != value;
 	}
@@ -76,7 +76,7 @@ public class StringValue extends Value {
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(type, instant, value);
+		return 31*super.hashCode() + Objects.hashCode(value);
 	}
 
 	@Override
@@ -88,7 +88,7 @@ public class StringValue extends Value {
 		}
 		StringValue v = (StringValue) o;
 		return type == v.type &&
-				Objects.equals(instant, v.instant) &&
+				timestamp == v.timestamp &&
 				Objects.equals(value, v.value);
 	}
 
@@ -1,11 +1,16 @@
 package org.the.ems.core.data;
 
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 
 public interface TemporalValue {
 
+	public default Instant getInstant() {
+		return Instant.ofEpochMilli(getEpochMillis());
+	}
+
 	public LocalDateTime getDateTime();
 
 	public LocalDate getDate();
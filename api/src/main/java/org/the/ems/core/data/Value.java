@@ -24,51 +24,55 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.ZoneId;
-import java.util.Objects;
 
 public abstract class Value implements TemporalValue {
 
 	// TODO: Make configurable
 	public final static ZoneId ZONE = ZoneId.systemDefault();
 
-	protected final Instant instant;
+	protected final long timestamp;
 
 	protected final ValueType type;
 
 	public Value(ValueType type, long timestamp) {
 		this.type = type;
 		
-		// TODO: Add additional constructors and start refactoring to work with time library instead of timestamps
-		this.instant = Instant.ofEpochMilli(timestamp);
+		// Keep the epoch milliseconds primitive and only materialize time objects when requested
+		this.timestamp = timestamp;
 	}
 
 	public ValueType getType() {
 		return type;
 	}
 
+	@Override
+	public Instant getInstant() {
+		return Instant.ofEpochMilli(timestamp);
+	}
+
 	@Override
 	public LocalDateTime getDateTime() {
-		return LocalDateTime.ofInstant(instant, ZONE);
+		return LocalDateTime.ofInstant(getInstant(), ZONE);
 	}
 
 	@Override
 	public LocalDate getDate() {
-		return LocalDate.ofInstant(instant, ZONE);
+		return LocalDate.ofInstant(getInstant(), ZONE);
 	}
 
 	@Override
 	public LocalTime getTime() {
-		return LocalTime.ofInstant(instant, ZONE);
+		return LocalTime.ofInstant(getInstant(), ZONE);
 	}
 
 	@Override
 	public long getEpochSeconds() {
-		return instant.getEpochSecond();
+		return Math.floorDiv(timestamp, 1000L);
 	}
 
 	@Override
-	public long getEpochMillis() { //throws ArithmeticException {
-		return instant.toEpochMilli();
+	public long getEpochMillis() {
+		return timestamp;
 	}
 
 	public abstract String stringValue();
@@ -94,7 +98,7 @@ public abstract class Value implements TemporalValue {
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(type, instant);
+		return 31*type.hashCode() + Long.hashCode(timestamp);
 	}
 
 	@Override
@@ -106,7 +110,7 @@ public abstract class Value implements TemporalValue {
 		}
 		Value v = (Value) o;
 		return type == v.type &&
-				Objects.equals(instant, v.instant);
+				timestamp == v.timestamp;
 	}
 
 }
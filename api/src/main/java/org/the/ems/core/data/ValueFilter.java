@@ -0,0 +1,212 @@
+/* 
+ * Copyright 2016-2021 ISC Konstanz
+ * 
+ * This file is part of TH-E-EMS.
+ * For more information visit https://github.com/isc-konstanz/th-e-ems
+ * 
+ * TH-E-EMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * TH-E-EMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with TH-E-EMS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.the.ems.core.data;
+
+/**
+ * Stateful filter, deciding whether a received value differs significantly enough from the last 
+ * accepted value to be passed on as an update.
+ * <p>
+ * A numeric value will be accepted, if it deviates from the last accepted value by more than the 
+ * absolute deadband, or by more than the relative deadband times the last accepted value, 
+ * whichever is greater. If the value reverses the direction of the last accepted change, the 
+ * deviation additionally needs to exceed the hysteresis. Independent of the deviation, no value 
+ * will be accepted earlier than the minimum interval after the last accepted value.
+ * Suppressed values will not be passed on retroactively.
+ * <p>
+ * A filter without any deadband, hysteresis or interval is not {@link #isEnabled() enabled}. 
+ * Channels will not consult it and pass on every received value as update, including unchanged values.
+ */
+public class ValueFilter {
+
+	public static final String DEADBAND = "deadband";
+	public static final String DEADBAND_RELATIVE = "deadbandRelative";
+	public static final String HYSTERESIS = "hysteresis";
+	public static final String INTERVAL_MIN = "intervalMin";
+
+	protected final double deadband;
+	protected final double deadbandRelative;
+	protected final double hysteresis;
+
+	protected final long intervalMin;
+
+	private boolean initialized = false;
+
+	private long lastTime;
+	private double lastValue;
+	private int lastDirection = 0;
+
+	public ValueFilter() {
+		this(0, 0, 0, 0);
+	}
+
+	public ValueFilter(double deadband, double deadbandRelative, double hysteresis, long intervalMin) {
+		if (!(deadband >= 0) || !(deadbandRelative >= 0) || !(hysteresis >= 0) || intervalMin < 0) {
+			throw new IllegalArgumentException("Filter thresholds must be positive");
+		}
+		this.deadband = deadband;
+		this.deadbandRelative = deadbandRelative;
+		this.hysteresis = hysteresis;
+		this.intervalMin = intervalMin;
+	}
+
+	/**
+	 * Parse the filter from a settings string of comma or semicolon separated <code>key=value</code> 
+	 * pairs, e.g. <code>deadband=0.5,hysteresis=0.2,intervalMin=60000</code>.
+	 * Pairs with unknown keys will be ignored, to allow the filter to be configured alongside other settings.
+	 * 
+	 * @param settings the settings string to parse
+	 * 
+	 * @return the parsed filter
+	 * 
+	 * @throws IllegalArgumentException if a filter setting is invalid
+	 */
+	public static ValueFilter parse(String settings) throws IllegalArgumentException {
+		double deadband = 0;
+		double deadbandRelative = 0;
+		double hysteresis = 0;
+		long intervalMin = 0;
+		
+		if (settings != null) {
+			for (String setting : settings.split("[,;]")) {
+				int separator = setting.indexOf('=');
+				if (separator < 0) {
+					continue;
+				}
+				String key = setting.substring(0, separator).trim();
+				String value = setting.substring(separator + 1).trim();
+				try {
+					switch (key) {
+					case DEADBAND:
+						deadband = Double.parseDouble(value);
+						break;
+					case DEADBAND_RELATIVE:
+						deadbandRelative = Double.parseDouble(value);
+						break;
+					case HYSTERESIS:
+						hysteresis = Double.parseDouble(value);
+						break;
+					case INTERVAL_MIN:
+						intervalMin = Long.parseLong(value);
+						break;
+					default:
+						break;
+					}
+				} catch (NumberFormatException e) {
+					throw new IllegalArgumentException("Invalid filter setting \"" + key + "\": " + value);
+				}
+			}
+		}
+		return new ValueFilter(deadband, deadbandRelative, hysteresis, intervalMin);
+	}
+
+	public double getDeadband() {
+		return deadband;
+	}
+
+	public double getDeadbandRelative() {
+		return deadbandRelative;
+	}
+
+	public double getHysteresis() {
+		return hysteresis;
+	}
+
+	public long getIntervalMin() {
+		return intervalMin;
+	}
+
+	public boolean isEnabled() {
+		return deadband > 0 || deadbandRelative > 0 || hysteresis > 0 || intervalMin > 0;
+	}
+
+	/**
+	 * Evaluate a numeric value and remember it as the new reference, if accepted.
+	 * 
+	 * @param timestamp the timestamp of the value in milliseconds
+	 * @param value the numeric value
+	 * 
+	 * @return true, if the value passed the filter
+	 */
+	public boolean update(long timestamp, double value) {
+		if (!initialized) {
+			return accept(timestamp, value, 0);
+		}
+		if (timestamp - lastTime < intervalMin) {
+			return false;
+		}
+		double delta = value - lastValue;
+		if (Double.isNaN(delta)) {
+			if (Double.compare(value, lastValue) == 0) {
+				return false;
+			}
+			return accept(timestamp, value, 0);
+		}
+		if (delta == 0) {
+			return false;
+		}
+		int direction = delta > 0 ? 1 : -1;
+		double threshold = Math.max(deadband, deadbandRelative*Math.abs(lastValue));
+		if (lastDirection != 0 && lastDirection != direction) {
+			threshold += hysteresis;
+		}
+		if (Math.abs(delta) <= threshold) {
+			return false;
+		}
+		return accept(timestamp, value, direction);
+	}
+
+	/**
+	 * Evaluate a non-numeric value, which will only be subject to the minimum interval.
+	 * 
+	 * @param timestamp the timestamp of the value in milliseconds
+	 * @param changed whether the value changed compared to the last received value
+	 * 
+	 * @return true, if the value passed the filter
+	 */
+	public boolean update(long timestamp, boolean changed) {
+		if (!initialized) {
+			return accept(timestamp, Double.NaN, 0);
+		}
+		if (!changed || timestamp - lastTime < intervalMin) {
+			return false;
+		}
+		return accept(timestamp, Double.NaN, 0);
+	}
+
+	private boolean accept(long timestamp, double value, int direction) {
+		initialized = true;
+		lastTime = timestamp;
+		lastValue = value;
+		lastDirection = direction;
+		return true;
+	}
+
+	public void reset() {
+		initialized = false;
+		lastDirection = 0;
+	}
+
+	@Override
+	public String toString() {
+		return DEADBAND+"="+deadband+","+DEADBAND_RELATIVE+"="+deadbandRelative+","+
+				HYSTERESIS+"="+hysteresis+","+INTERVAL_MIN+"="+intervalMin;
+	}
+
+}
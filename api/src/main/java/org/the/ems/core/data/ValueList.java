@@ -19,21 +19,128 @@
  */
 package org.the.ems.core.data;
 
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.Comparator;
-import java.util.LinkedList;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
 
-public class ValueList extends LinkedList<Value> {
-	private static final long serialVersionUID = -5725862833767844148L;
+/**
+ * Array backed list of {@link Value}s, allowing constant time indexed access.
+ * <p>
+ * The primitive accessors {@link #getEpochMillis(int)} and {@link #doubleValue(int)} may be used 
+ * to iterate a list without relying on the value objects, which allows columnar implementations 
+ * like the {@link org.the.ems.core.schedule.Schedule} to avoid allocating any values at all.
+ */
+public class ValueList extends AbstractList<Value> implements RandomAccess {
+
+	private static final int CAPACITY_DEFAULT = 10;
+
+	private static final Value[] EMPTY = {};
+
+	private Value[] values;
+
+	private int size = 0;
 
 	public ValueList() {
-		super();
+		this(CAPACITY_DEFAULT);
 	}
 
 	public ValueList(Value value) {
-		super();
+		this();
 		add(value);
 	}
 
+	protected ValueList(int capacity) {
+		super();
+		values = capacity > 0 ? new Value[capacity] : EMPTY;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public Value get(int index) {
+		checkIndex(index);
+		return values[index];
+	}
+
+	public long getEpochMillis(int index) {
+		return get(index).getEpochMillis();
+	}
+
+	public double doubleValue(int index) {
+		return get(index).doubleValue();
+	}
+
+	public Value getFirst() {
+		if (isEmpty()) {
+			throw new NoSuchElementException();
+		}
+		return get(0);
+	}
+
+	public Value getLast() {
+		if (isEmpty()) {
+			throw new NoSuchElementException();
+		}
+		return get(size() - 1);
+	}
+
+	public Value peekFirst() {
+		return isEmpty() ? null : get(0);
+	}
+
+	public Value peekLast() {
+		return isEmpty() ? null : get(size() - 1);
+	}
+
+	@Override
+	public Value set(int index, Value value) {
+		checkIndex(index);
+		Value previous = values[index];
+		values[index] = value;
+		return previous;
+	}
+
+	@Override
+	public void add(int index, Value value) {
+		if (index < 0 || index > size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		modCount++;
+		if (size == values.length) {
+			values = Arrays.copyOf(values, Math.max(CAPACITY_DEFAULT, size + (size >> 1)));
+		}
+		if (index < size) {
+			System.arraycopy(values, index, values, index + 1, size - index);
+		}
+		values[index] = value;
+		size++;
+	}
+
+	@Override
+	public Value remove(int index) {
+		checkIndex(index);
+		modCount++;
+		Value previous = values[index];
+		int moved = size - index - 1;
+		if (moved > 0) {
+			System.arraycopy(values, index + 1, values, index, moved);
+		}
+		values[--size] = null;
+		return previous;
+	}
+
+	@Override
+	public void clear() {
+		modCount++;
+		Arrays.fill(values, 0, size, null);
+		size = 0;
+	}
+
 	public ValueList sort() {
 		Comparator<Value> comparator = new SortTime();
 		sort(comparator);
@@ -41,10 +148,22 @@ public class ValueList extends LinkedList<Value> {
 		return this;
 	}
 
-	private class SortTime implements Comparator<Value> {
+	@Override
+	public void sort(Comparator<? super Value> comparator) {
+		Arrays.sort(values, 0, size, comparator);
+		modCount++;
+	}
+
+	protected void checkIndex(int index) {
+		if (index < 0 || index >= size()) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+		}
+	}
+
+	static class SortTime implements Comparator<Value> {
 		@Override
 		public int compare(Value v1, Value v2) {
-			return (int) (v1.getEpochMillis() - v2.getEpochMillis());
+			return Long.compare(v1.getEpochMillis(), v2.getEpochMillis());
 		}
 	}
 }
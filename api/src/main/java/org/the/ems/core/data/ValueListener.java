@@ -27,10 +27,48 @@ public interface ValueListener extends EventListener {
 		// Default implementation to be overridden
 	}
 
+	/**
+	 * Called for a burst of values, received consecutively and ordered by time, e.g. when values 
+	 * buffered by a driver after a reconnect queued up for an asynchronously dispatched listener. 
+	 * Listeners may override this to process all values in a single pass.
+	 * 
+	 * @param values the list of received values
+	 */
+	public default void onValuesReceived(ValueList values) {
+		for (int i = 0; i < values.size(); i++) {
+			onValueReceived(values.get(i));
+		}
+	}
+
 	public default void onValueChanged(Value value) {
 		// Default implementation to be overridden
 	}
 
+	/**
+	 * Called for received values, that passed the {@link ValueFilter} of the channel.
+	 * Listeners may subscribe to this filtered stream instead of every received value.
+	 * If no filter is configured for the channel, every received value will be passed on.
+	 * 
+	 * @param value the received value that passed the filter
+	 */
+	public default void onValueUpdated(Value value) {
+		// Default implementation to be overridden
+	}
+
+	/**
+	 * Called for a burst of values, that passed the {@link ValueFilter} of the channel consecutively.
+	 * Listeners may override this to process all values in a single pass.
+	 * 
+	 * @param values the list of received values that passed the filter
+	 * 
+	 * @see #onValuesReceived(ValueList)
+	 */
+	public default void onValuesUpdated(ValueList values) {
+		for (int i = 0; i < values.size(); i++) {
+			onValueUpdated(values.get(i));
+		}
+	}
+
 	public default void onError(Error error) {
 		// Default implementation to be overridden
 	}
@@ -0,0 +1,241 @@
+/* 
+ * Copyright 2016-2021 ISC Konstanz
+ * 
+ * This file is part of TH-E-EMS.
+ * For more information visit https://github.com/isc-konstanz/th-e-ems
+ * 
+ * TH-E-EMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * TH-E-EMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with TH-E-EMS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.the.ems.core.data;
+
+import java.util.Collection;
+import java.util.Comparator;
+
+/**
+ * List of {@link Value}s, sorted by their timestamp by construction.
+ * <p>
+ * Values are inserted at the position found by binary search, so the series never needs to be sorted. 
+ * Time ranges of the series can be retrieved in logarithmic time as read-only views, 
+ * without copying any values. Views are only valid as long as the series is not modified.
+ */
+public class ValueSeries extends ValueList {
+
+	public ValueSeries() {
+		super();
+	}
+
+	public ValueSeries(Value value) {
+		super();
+		add(value);
+	}
+
+	public ValueSeries(Collection<? extends Value> values) {
+		super(values.size());
+		for (Value value : values) {
+			super.add(size(), value);
+		}
+		if (!(values instanceof ValueSeries)) {
+			super.sort(new SortTime());
+		}
+	}
+
+	public static ValueSeries of(ValueList values) {
+		if (values instanceof ValueSeries) {
+			return (ValueSeries) values;
+		}
+		return new ValueSeries(values);
+	}
+
+	@Override
+	public boolean add(Value value) {
+		super.add(search(value.getEpochMillis(), true), value);
+		return true;
+	}
+
+	@Override
+	public void add(int index, Value value) {
+		checkOrder(index, index, value);
+		super.add(index, value);
+	}
+
+	@Override
+	public Value set(int index, Value value) {
+		checkOrder(index, index + 1, value);
+		return super.set(index, value);
+	}
+
+	/**
+	 * Get all values before the passed timestamp.
+	 * 
+	 * @param timestamp the exclusive upper bound as a UNIX timestamp
+	 * 
+	 * @return a read-only view of the values
+	 */
+	public ValueList headSet(long timestamp) {
+		return headSet(timestamp, false);
+	}
+
+	public ValueList headSet(long timestamp, boolean inclusive) {
+		return new View(0, search(timestamp, inclusive));
+	}
+
+	/**
+	 * Get all values at or after the passed timestamp.
+	 * 
+	 * @param timestamp the inclusive lower bound as a UNIX timestamp
+	 * 
+	 * @return a read-only view of the values
+	 */
+	public ValueList tailSet(long timestamp) {
+		return tailSet(timestamp, true);
+	}
+
+	public ValueList tailSet(long timestamp, boolean inclusive) {
+		return new View(search(timestamp, !inclusive), size());
+	}
+
+	/**
+	 * Get all values in the range between the passed timestamps.
+	 * 
+	 * @param start the inclusive lower bound as a UNIX timestamp
+	 * @param end the exclusive upper bound as a UNIX timestamp
+	 * 
+	 * @return a read-only view of the values
+	 */
+	public ValueList subRange(long start, long end) {
+		int from = search(start, false);
+		int to = search(end, false);
+		return new View(from, Math.max(from, to));
+	}
+
+	/**
+	 * Split the series into values up to and including the passed timestamp, 
+	 * and values after the passed timestamp.
+	 * 
+	 * @param timestamp the time to split the series at as a UNIX timestamp
+	 * 
+	 * @return an array of the read-only views of the head and the tail
+	 */
+	public ValueList[] split(long timestamp) {
+		int index = search(timestamp, true);
+		return new ValueList[] { new View(0, index), new View(index, size()) };
+	}
+
+	@Override
+	public ValueSeries sort() {
+		// Series are sorted by construction
+		return this;
+	}
+
+	@Override
+	public void sort(Comparator<? super Value> comparator) {
+		if (!(comparator instanceof SortTime)) {
+			throw new UnsupportedOperationException("Series are sorted by time and may not be reordered");
+		}
+	}
+
+	/**
+	 * Search the index of the first value with a timestamp greater than, or equal to the passed timestamp.
+	 * If after is true, the index of the first value with a timestamp greater than the passed one is returned.
+	 */
+	protected int search(long timestamp, boolean after) {
+		int low = 0;
+		int high = size();
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			long time = getEpochMillis(mid);
+			if (time < timestamp || after && time == timestamp) {
+				low = mid + 1;
+			}
+			else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	private void checkOrder(int before, int after, Value value) {
+		long time = value.getEpochMillis();
+		if (before > 0 && getEpochMillis(before - 1) > time ||
+				after < size() && getEpochMillis(after) < time) {
+			throw new IllegalArgumentException("Value timestamp violates the series order: " + time);
+		}
+	}
+
+	private class View extends ValueList {
+
+		private final int offset;
+		private final int size;
+
+		private View(int from, int to) {
+			super(0);
+			this.offset = from;
+			this.size = to - from;
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public Value get(int index) {
+			checkIndex(index);
+			return ValueSeries.this.get(offset + index);
+		}
+
+		@Override
+		public long getEpochMillis(int index) {
+			checkIndex(index);
+			return ValueSeries.this.getEpochMillis(offset + index);
+		}
+
+		@Override
+		public double doubleValue(int index) {
+			checkIndex(index);
+			return ValueSeries.this.doubleValue(offset + index);
+		}
+
+		@Override
+		public Value set(int index, Value value) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void add(int index, Value value) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Value remove(int index) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void clear() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public ValueList sort() {
+			return this;
+		}
+
+		@Override
+		public void sort(Comparator<? super Value> comparator) {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+}
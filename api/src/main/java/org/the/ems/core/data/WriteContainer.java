@@ -33,7 +33,7 @@ public class WriteContainer extends LinkedHashMap<Channel, ValueList> {
 			throw new NullPointerException();
 		}
 		if (!containsKey(channel)) {
-			put(channel, new ValueList());
+			put(channel, new ValueSeries());
 		}
 		return get(channel).add(value);
 	}
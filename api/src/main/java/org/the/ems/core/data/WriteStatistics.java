@@ -0,0 +1,92 @@
+/* 
+ * Copyright 2016-2021 ISC Konstanz
+ * 
+ * This file is part of TH-E-EMS.
+ * For more information visit https://github.com/isc-konstanz/th-e-ems
+ * 
+ * TH-E-EMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * TH-E-EMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with TH-E-EMS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.the.ems.core.data;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Immutable statistics of batched writes, each batch being a single transaction with one device.
+ */
+public class WriteStatistics {
+
+	private final long batches;
+	private final long values;
+
+	private final long latencyLast;
+	private final long latencyMax;
+	private final long latencyTotal;
+
+	public WriteStatistics() {
+		this(0, 0, 0, 0, 0);
+	}
+
+	private WriteStatistics(long batches, long values, long latencyLast, long latencyMax, long latencyTotal) {
+		this.batches = batches;
+		this.values = values;
+		this.latencyLast = latencyLast;
+		this.latencyMax = latencyMax;
+		this.latencyTotal = latencyTotal;
+	}
+
+	/**
+	 * Get the statistics including another written batch.
+	 * 
+	 * @param values the number of values written in the batch
+	 * @param latency the latency of the batch in nanoseconds
+	 * 
+	 * @return the updated statistics
+	 */
+	public WriteStatistics update(int values, long latency) {
+		return new WriteStatistics(batches + 1, this.values + values, latency, 
+				Math.max(latencyMax, latency), latencyTotal + latency);
+	}
+
+	public long getBatchCount() {
+		return batches;
+	}
+
+	public long getValueCount() {
+		return values;
+	}
+
+	public long getLatencyLast(TimeUnit unit) {
+		return unit.convert(latencyLast, TimeUnit.NANOSECONDS);
+	}
+
+	public long getLatencyMax(TimeUnit unit) {
+		return unit.convert(latencyMax, TimeUnit.NANOSECONDS);
+	}
+
+	public long getLatencyAverage(TimeUnit unit) {
+		if (batches == 0) {
+			return 0;
+		}
+		return unit.convert(latencyTotal/batches, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public String toString() {
+		return "batches="+batches+",values="+values+
+				",latencyLast="+getLatencyLast(TimeUnit.MILLISECONDS)+"ms"+
+				",latencyMax="+getLatencyMax(TimeUnit.MILLISECONDS)+"ms"+
+				",latencyAverage="+getLatencyAverage(TimeUnit.MILLISECONDS)+"ms";
+	}
+
+}
@@ -0,0 +1,522 @@
+/* 
+ * Copyright 2016-2021 ISC Konstanz
+ * 
+ * This file is part of TH-E-EMS.
+ * For more information visit https://github.com/isc-konstanz/th-e-ems
+ * 
+ * TH-E-EMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * TH-E-EMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with TH-E-EMS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.the.ems.core.data.codec;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map.Entry;
+
+import org.the.ems.core.data.BooleanValue;
+import org.the.ems.core.data.ByteValue;
+import org.the.ems.core.data.DoubleValue;
+import org.the.ems.core.data.FloatValue;
+import org.the.ems.core.data.IntValue;
+import org.the.ems.core.data.LongValue;
+import org.the.ems.core.data.ShortValue;
+import org.the.ems.core.data.StringValue;
+import org.the.ems.core.data.Value;
+import org.the.ems.core.data.ValueList;
+import org.the.ems.core.data.ValueSeries;
+import org.the.ems.core.data.ValueType;
+import org.the.ems.core.schedule.ControlSchedule;
+import org.the.ems.core.schedule.Schedule;
+
+/**
+ * Compact, versioned binary codec for {@link Value}s, {@link ValueList}s, {@link Schedule}s and 
+ * {@link ControlSchedule}s, reading and writing {@link ByteBuffer}s directly.
+ * <p>
+ * Every encoded object starts with the codec version and a kind tag. Timestamps are written as 
+ * zigzag encoded variable length integers, relative to the preceding value inside lists, while 
+ * payloads are written as raw big-endian primitives. Schedule values are stored as a contiguous 
+ * block of doubles, which will be wrapped without copying when decoded, e.g. from direct or 
+ * memory-mapped buffers.
+ * 
+ * <pre>
+ * header:   version:u8 kind:u8
+ * value:    type:u8 timestamp:varlong payload
+ * list:     count:varint (type:u8 timestamp-delta:varlong payload)*
+ * schedule: start:varlong interval:varint count:varint value:f64*
+ * control:  timestamp:varlong count:varint (key:string schedule)*
+ * string:   length:varint utf-8
+ * </pre>
+ */
+public final class ValueCodec {
+
+	public static final byte VERSION = 1;
+
+	private static final byte KIND_VALUE = 1;
+	private static final byte KIND_LIST = 2;
+	private static final byte KIND_SERIES = 3;
+	private static final byte KIND_SCHEDULE = 4;
+	private static final byte KIND_CONTROL_SCHEDULE = 5;
+
+	private static final int HEADER_SIZE = 2;
+
+	private ValueCodec() {
+	}
+
+	public static ByteBuffer encode(Value value) {
+		ByteBuffer buffer = ByteBuffer.allocate(sizeOf(value));
+		encode(value, buffer);
+		buffer.flip();
+		return buffer;
+	}
+
+	public static void encode(Value value, ByteBuffer buffer) {
+		ByteOrder order = buffer.order();
+		buffer.order(ByteOrder.BIG_ENDIAN);
+		try {
+			buffer.put(VERSION).put(KIND_VALUE);
+			writeValue(buffer, value, 0);
+			
+		} finally {
+			buffer.order(order);
+		}
+	}
+
+	public static ByteBuffer encode(ValueList values) {
+		ByteBuffer buffer = ByteBuffer.allocate(sizeOf(values));
+		encode(values, buffer);
+		buffer.flip();
+		return buffer;
+	}
+
+	public static void encode(ValueList values, ByteBuffer buffer) {
+		ByteOrder order = buffer.order();
+		buffer.order(ByteOrder.BIG_ENDIAN);
+		try {
+			if (values instanceof Schedule) {
+				buffer.put(VERSION).put(KIND_SCHEDULE);
+				writeSchedule(buffer, (Schedule) values);
+			}
+			else {
+				buffer.put(VERSION).put(values instanceof ValueSeries ? KIND_SERIES : KIND_LIST);
+				writeValues(buffer, values);
+			}
+		} finally {
+			buffer.order(order);
+		}
+	}
+
+	public static ByteBuffer encode(ControlSchedule schedule) {
+		ByteBuffer buffer = ByteBuffer.allocate(sizeOf(schedule));
+		encode(schedule, buffer);
+		buffer.flip();
+		return buffer;
+	}
+
+	public static void encode(ControlSchedule schedule, ByteBuffer buffer) {
+		ByteOrder order = buffer.order();
+		buffer.order(ByteOrder.BIG_ENDIAN);
+		try {
+			buffer.put(VERSION).put(KIND_CONTROL_SCHEDULE);
+			writeVarLong(buffer, zigzag(schedule.getTimestamp()));
+			writeVarLong(buffer, schedule.size());
+			for (Entry<String, Schedule> entry : schedule.entrySet()) {
+				writeString(buffer, entry.getKey());
+				writeSchedule(buffer, entry.getValue());
+			}
+		} finally {
+			buffer.order(order);
+		}
+	}
+
+	public static int sizeOf(Value value) {
+		return HEADER_SIZE + sizeOf(value, 0);
+	}
+
+	public static int sizeOf(ValueList values) {
+		if (values instanceof Schedule) {
+			return HEADER_SIZE + sizeOf((Schedule) values);
+		}
+		int size = HEADER_SIZE + sizeOfVarLong(values.size());
+		long timestamp = 0;
+		for (Value value : values) {
+			size += sizeOf(value, timestamp);
+			timestamp = value.getEpochMillis();
+		}
+		return size;
+	}
+
+	public static int sizeOf(ControlSchedule schedule) {
+		int size = HEADER_SIZE + sizeOfVarLong(zigzag(schedule.getTimestamp())) + sizeOfVarLong(schedule.size());
+		for (Entry<String, Schedule> entry : schedule.entrySet()) {
+			size += sizeOf(entry.getKey());
+			size += sizeOf(entry.getValue());
+		}
+		return size;
+	}
+
+	public static Value decodeValue(ByteBuffer buffer) throws CodecException {
+		ByteOrder order = buffer.order();
+		buffer.order(ByteOrder.BIG_ENDIAN);
+		try {
+			readHeader(buffer, KIND_VALUE);
+			return readValue(buffer, 0);
+			
+		} catch (BufferUnderflowException e) {
+			throw new CodecException("Unexpected end of encoded value");
+			
+		} finally {
+			buffer.order(order);
+		}
+	}
+
+	/**
+	 * Decode a list of values. Depending on the encoded kind, this returns a {@link ValueList}, 
+	 * a {@link ValueSeries} or a {@link Schedule}.
+	 * 
+	 * @param buffer the buffer to read the encoded values from
+	 * 
+	 * @return the decoded list of values
+	 * 
+	 * @throws CodecException if the buffer does not contain a valid encoded list
+	 */
+	public static ValueList decodeValues(ByteBuffer buffer) throws CodecException {
+		ByteOrder order = buffer.order();
+		buffer.order(ByteOrder.BIG_ENDIAN);
+		try {
+			byte kind = readHeader(buffer, KIND_LIST, KIND_SERIES, KIND_SCHEDULE);
+			switch (kind) {
+			case KIND_SCHEDULE:
+				return readSchedule(buffer);
+			case KIND_SERIES:
+				return readValues(buffer, new ValueSeries());
+			default:
+				return readValues(buffer, new ValueList());
+			}
+		} catch (BufferUnderflowException e) {
+			throw new CodecException("Unexpected end of encoded values");
+			
+		} finally {
+			buffer.order(order);
+		}
+	}
+
+	public static Schedule decodeSchedule(ByteBuffer buffer) throws CodecException {
+		ByteOrder order = buffer.order();
+		buffer.order(ByteOrder.BIG_ENDIAN);
+		try {
+			readHeader(buffer, KIND_SCHEDULE);
+			return readSchedule(buffer);
+			
+		} catch (BufferUnderflowException e) {
+			throw new CodecException("Unexpected end of encoded schedule");
+			
+		} finally {
+			buffer.order(order);
+		}
+	}
+
+	public static ControlSchedule decodeControlSchedule(ByteBuffer buffer) throws CodecException {
+		ByteOrder order = buffer.order();
+		buffer.order(ByteOrder.BIG_ENDIAN);
+		try {
+			readHeader(buffer, KIND_CONTROL_SCHEDULE);
+			ControlSchedule schedule = new ControlSchedule(unzigzag(readVarLong(buffer)));
+			int count = readCount(buffer);
+			for (int i=0; i<count; i++) {
+				String key = readString(buffer);
+				schedule.put(key, readSchedule(buffer));
+			}
+			return schedule;
+			
+		} catch (BufferUnderflowException e) {
+			throw new CodecException("Unexpected end of encoded control schedule");
+			
+		} finally {
+			buffer.order(order);
+		}
+	}
+
+	private static byte readHeader(ByteBuffer buffer, byte... kinds) throws CodecException {
+		byte version = buffer.get();
+		if (version != VERSION) {
+			throw new CodecException("Unsupported codec version: " + version);
+		}
+		byte kind = buffer.get();
+		for (byte k : kinds) {
+			if (k == kind) {
+				return kind;
+			}
+		}
+		throw new CodecException("Unexpected encoded kind: " + kind);
+	}
+
+	private static void writeValues(ByteBuffer buffer, ValueList values) {
+		writeVarLong(buffer, values.size());
+		long timestamp = 0;
+		for (Value value : values) {
+			writeValue(buffer, value, timestamp);
+			timestamp = value.getEpochMillis();
+		}
+	}
+
+	private static ValueList readValues(ByteBuffer buffer, ValueList values) throws CodecException {
+		int count = readCount(buffer);
+		long timestamp = 0;
+		for (int i=0; i<count; i++) {
+			Value value = readValue(buffer, timestamp);
+			timestamp = value.getEpochMillis();
+			values.add(value);
+		}
+		return values;
+	}
+
+	private static void writeSchedule(ByteBuffer buffer, Schedule schedule) {
+		writeVarLong(buffer, zigzag(schedule.getStartTime()));
+		writeVarLong(buffer, schedule.getInterval());
+		writeVarLong(buffer, schedule.size());
+		
+		DoubleBuffer values = schedule.toDoubleBuffer();
+		buffer.asDoubleBuffer().put(values);
+		buffer.position(buffer.position() + schedule.size()*Double.BYTES);
+	}
+
+	private static Schedule readSchedule(ByteBuffer buffer) throws CodecException {
+		long startTime = unzigzag(readVarLong(buffer));
+		int interval = readCount(buffer);
+		int count = readCount(buffer);
+		if (count > buffer.remaining()/Double.BYTES) {
+			throw new CodecException("Unexpected end of encoded schedule values");
+		}
+		int length = count*Double.BYTES;
+		ByteBuffer slice = buffer.slice();
+		slice.limit(length);
+		buffer.position(buffer.position() + length);
+		
+		DoubleBuffer values = slice.asReadOnlyBuffer()
+				.order(ByteOrder.BIG_ENDIAN)
+				.asDoubleBuffer();
+		try {
+			return new Schedule(startTime, interval, values);
+			
+		} catch (IllegalArgumentException e) {
+			throw new CodecException(e.getMessage());
+		}
+	}
+
+	private static int sizeOf(Schedule schedule) {
+		return sizeOfVarLong(zigzag(schedule.getStartTime())) + 
+				sizeOfVarLong(schedule.getInterval()) + 
+				sizeOfVarLong(schedule.size()) + 
+				schedule.size()*Double.BYTES;
+	}
+
+	private static void writeValue(ByteBuffer buffer, Value value, long timestamp) {
+		ValueType type = value.getType();
+		buffer.put(encodeType(type));
+		writeVarLong(buffer, zigzag(value.getEpochMillis() - timestamp));
+		switch(type) {
+		case DOUBLE:
+			buffer.putDouble(value.doubleValue());
+			break;
+		case FLOAT:
+			buffer.putFloat(value.floatValue());
+			break;
+		case LONG:
+			buffer.putLong(value.longValue());
+			break;
+		case INTEGER:
+			buffer.putInt(value.intValue());
+			break;
+		case SHORT:
+			buffer.putShort(value.shortValue());
+			break;
+		case BYTE:
+			buffer.put(value.byteValue());
+			break;
+		case BOOLEAN:
+			buffer.put((byte) (value.booleanValue() ? 1 : 0));
+			break;
+		case STRING:
+		default:
+			writeString(buffer, value.stringValue());
+			break;
+		}
+	}
+
+	private static Value readValue(ByteBuffer buffer, long timestamp) throws CodecException {
+		ValueType type = decodeType(buffer.get());
+		long time = timestamp + unzigzag(readVarLong(buffer));
+		switch(type) {
+		case DOUBLE:
+			return new DoubleValue(buffer.getDouble(), time);
+		case FLOAT:
+			return new FloatValue(buffer.getFloat(), time);
+		case LONG:
+			return new LongValue(buffer.getLong(), time);
+		case INTEGER:
+			return new IntValue(buffer.getInt(), time);
+		case SHORT:
+			return new ShortValue(buffer.getShort(), time);
+		case BYTE:
+			return new ByteValue(buffer.get(), time);
+		case BOOLEAN:
+			return new BooleanValue(buffer.get() != 0, time);
+		case STRING:
+		default:
+			return new StringValue(readString(buffer), time);
+		}
+	}
+
+	private static int sizeOf(Value value, long timestamp) {
+		int size = 1 + sizeOfVarLong(zigzag(value.getEpochMillis() - timestamp));
+		switch(value.getType()) {
+		case DOUBLE:
+		case LONG:
+			return size + 8;
+		case FLOAT:
+		case INTEGER:
+			return size + 4;
+		case SHORT:
+			return size + 2;
+		case BYTE:
+		case BOOLEAN:
+			return size + 1;
+		case STRING:
+		default:
+			return size + sizeOf(value.stringValue());
+		}
+	}
+
+	private static byte encodeType(ValueType type) {
+		switch(type) {
+		case DOUBLE:
+			return 1;
+		case FLOAT:
+			return 2;
+		case LONG:
+			return 3;
+		case INTEGER:
+			return 4;
+		case SHORT:
+			return 5;
+		case BYTE:
+			return 6;
+		case BOOLEAN:
+			return 7;
+		case STRING:
+		default:
+			return 8;
+		}
+	}
+
+	private static ValueType decodeType(byte type) throws CodecException {
+		switch(type) {
+		case 1:
+			return ValueType.DOUBLE;
+		case 2:
+			return ValueType.FLOAT;
+		case 3:
+			return ValueType.LONG;
+		case 4:
+			return ValueType.INTEGER;
+		case 5:
+			return ValueType.SHORT;
+		case 6:
+			return ValueType.BYTE;
+		case 7:
+			return ValueType.BOOLEAN;
+		case 8:
+			return ValueType.STRING;
+		default:
+			throw new CodecException("Unknown encoded value type: " + type);
+		}
+	}
+
+	private static void writeString(ByteBuffer buffer, String str) {
+		byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+		writeVarLong(buffer, bytes.length);
+		buffer.put(bytes);
+	}
+
+	private static String readString(ByteBuffer buffer) throws CodecException {
+		int length = readCount(buffer);
+		if (length > buffer.remaining()) {
+			throw new CodecException("Unexpected end of encoded string");
+		}
+		String str;
+		if (buffer.hasArray()) {
+			str = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+			buffer.position(buffer.position() + length);
+		}
+		else {
+			byte[] bytes = new byte[length];
+			buffer.get(bytes);
+			str = new String(bytes, StandardCharsets.UTF_8);
+		}
+		return str;
+	}
+
+	private static int sizeOf(String str) {
+		int length = str.getBytes(StandardCharsets.UTF_8).length;
+		return sizeOfVarLong(length) + length;
+	}
+
+	private static int readCount(ByteBuffer buffer) throws CodecException {
+		long count = readVarLong(buffer);
+		if (count < 0 || count > Integer.MAX_VALUE) {
+			throw new CodecException("Invalid encoded count: " + count);
+		}
+		return (int) count;
+	}
+
+	private static void writeVarLong(ByteBuffer buffer, long value) {
+		while ((value & ~0x7FL) != 0) {
+			buffer.put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		buffer.put((byte) value);
+	}
+
+	private static long readVarLong(ByteBuffer buffer) throws CodecException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			byte b = buffer.get();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new CodecException("Malformed variable length integer");
+	}
+
+	private static int sizeOfVarLong(long value) {
+		int size = 1;
+		while ((value & ~0x7FL) != 0) {
+			value >>>= 7;
+			size++;
+		}
+		return size;
+	}
+
+	private static long zigzag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	private static long unzigzag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+}
@@ -22,5 +22,6 @@ package org.the.ems.core.data.event;
 public enum EventType {
 	RECEIVED,
 	CHANGED,
+	UPDATED,
 	ERROR;
 }
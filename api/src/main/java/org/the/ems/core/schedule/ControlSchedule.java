@@ -30,7 +30,11 @@ public class ControlSchedule extends HashMap<String, Schedule> {
 	private final long timestamp;
 
 	public ControlSchedule() {
-		timestamp = System.currentTimeMillis();
+		this(System.currentTimeMillis());
+	}
+
+	public ControlSchedule(long timestamp) {
+		this.timestamp = timestamp;
 	}
 
 	public long getTimestamp() {
@@ -19,23 +19,69 @@
  */
 package org.the.ems.core.schedule;
 
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+import java.util.Comparator;
+
 import org.the.ems.core.data.DoubleValue;
 import org.the.ems.core.data.Value;
 import org.the.ems.core.data.ValueList;
 
+/**
+ * Fixed interval series of setpoints, stored columnar as a start time and a primitive buffer of values.
+ * <p>
+ * As the timestamp of each setpoint is implied by its index, {@link #getEpochMillis(int)} and 
+ * {@link #doubleValue(int)} allow to iterate a schedule without allocating any {@link Value}s, 
+ * which will only be created when retrieved with {@link #get(int)}.
+ * <p>
+ * Schedules may wrap existing buffers without copying them, e.g. when decoded from a memory-mapped file. 
+ * Read-only buffers will only be copied to the heap, as soon as the schedule gets modified.
+ */
 public class Schedule extends ValueList {
-	private static final long serialVersionUID = -96966430241693416L;
+
+	private static final int CAPACITY_DEFAULT = 96;
 
 	protected final int interval;
 
+	private long startTime = -1;
+
+	private DoubleBuffer values;
+
+	private int size = 0;
+
 	public Schedule(int interval, Value value) {
 		this(interval);
-		super.add(value);
+		add(value);
 	}
 
 	public Schedule(int interval) {
-		super();
+		super(0);
+		if (interval <= 0) {
+			throw new IllegalArgumentException("Invalid schedule interval: " + interval);
+		}
 		this.interval = interval;
+		this.values = DoubleBuffer.allocate(CAPACITY_DEFAULT);
+	}
+
+	public Schedule(long startTime, int interval, double... values) {
+		this(interval);
+		this.startTime = startTime;
+		this.values = DoubleBuffer.wrap(Arrays.copyOf(values, Math.max(values.length, CAPACITY_DEFAULT)));
+		this.size = values.length;
+	}
+
+	/**
+	 * Create a schedule, wrapping the remaining values of the passed buffer without copying them.
+	 * 
+	 * @param startTime the time of the first setpoint as a UNIX timestamp
+	 * @param interval the interval between setpoints in milliseconds
+	 * @param values the buffer of setpoint values
+	 */
+	public Schedule(long startTime, int interval, DoubleBuffer values) {
+		this(interval);
+		this.startTime = startTime;
+		this.values = values.slice();
+		this.size = this.values.capacity();
 	}
 
 	public int getInterval() {
@@ -43,36 +89,171 @@ public class Schedule extends ValueList {
 	}
 
 	public long getStartTime() {
-		Value start = peekFirst();
-		if (start != null) {
-			return start.getEpochMillis();
+		if (size > 0) {
+			return startTime;
 		}
 		return -1;
 	}
 
 	public long getEndTime() {
-		Value end = peekLast();
-		if (end != null) {
-			return end.getEpochMillis() + interval;
+		if (size > 0) {
+			return startTime + (long) size*interval;
 		}
 		return -1;
 	}
 
+	/**
+	 * Get the index of the setpoint, valid at the passed timestamp.
+	 * 
+	 * @param timestamp the time as a UNIX timestamp
+	 * 
+	 * @return the index of the setpoint or -1, if the timestamp is not covered by this schedule
+	 */
+	public int getIndex(long timestamp) {
+		if (size == 0 || timestamp < startTime || timestamp >= getEndTime()) {
+			return -1;
+		}
+		return (int) ((timestamp - startTime)/interval);
+	}
+
 	@Override
-	public boolean add(Value value) {
-		if (value.getEpochMillis() <= getStartTime() || (value.getEpochMillis() - getStartTime()) % interval != 0 || 
-				value.getEpochMillis() >= getEndTime()) {
-			return false;
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public Value get(int index) {
+		checkIndex(index);
+		return new DoubleValue(values.get(index), startTime + (long) index*interval);
+	}
+
+	@Override
+	public long getEpochMillis(int index) {
+		checkIndex(index);
+		return startTime + (long) index*interval;
+	}
+
+	@Override
+	public double doubleValue(int index) {
+		checkIndex(index);
+		return values.get(index);
+	}
+
+	public double[] toDoubleArray() {
+		double[] array = new double[size];
+		values.duplicate().get(array);
+		return array;
+	}
+
+	/**
+	 * Get a read-only view of the setpoint values, without copying them.
+	 * 
+	 * @return the buffer of setpoint values
+	 */
+	public DoubleBuffer toDoubleBuffer() {
+		DoubleBuffer buffer = values.asReadOnlyBuffer();
+		buffer.limit(size);
+		return buffer;
+	}
+
+	@Override
+	public Value set(int index, Value value) {
+		if (value.getEpochMillis() != getEpochMillis(index)) {
+			throw new IllegalArgumentException("Value timestamp does not match schedule index: " + index);
 		}
-		return super.add(value);
+		Value previous = get(index);
+		ensureWritable(size);
+		values.put(index, value.doubleValue());
+		return previous;
+	}
+
+	@Override
+	public boolean add(Value value) {
+		return add(value.getEpochMillis(), value.doubleValue());
 	}
 
+	/**
+	 * Append a setpoint to the schedule. 
+	 * The first setpoint defines the start time, while every following one needs to be 
+	 * added exactly at the current {@link #getEndTime()}.
+	 * 
+	 * @param time the time of the setpoint as a UNIX timestamp
+	 * @param value the setpoint value
+	 * 
+	 * @return whether the setpoint was added
+	 */
 	public boolean add(long time, double value) {
-		return add(new DoubleValue(value, time));
+		if (size == 0) {
+			startTime = time;
+		}
+		else if (time != getEndTime()) {
+			return false;
+		}
+		modCount++;
+		ensureWritable(size + 1);
+		values.put(size++, value);
+		return true;
 	}
 
 	public boolean add(double value) {
 		return add(getEndTime(), value);
 	}
 
+	@Override
+	public void add(int index, Value value) {
+		if (index != size || !add(value)) {
+			throw new UnsupportedOperationException("Setpoints may only be appended at the schedule end time");
+		}
+	}
+
+	@Override
+	public Value remove(int index) {
+		Value previous = get(index);
+		if (index == 0) {
+			// Slide the buffer window instead of shifting the values
+			DoubleBuffer remaining = values.duplicate();
+			remaining.position(1);
+			values = remaining.slice();
+			startTime += interval;
+		}
+		else if (index != size - 1) {
+			throw new UnsupportedOperationException("Setpoints may only be removed from the schedule start or end");
+		}
+		modCount++;
+		size--;
+		return previous;
+	}
+
+	@Override
+	public void clear() {
+		modCount++;
+		startTime = -1;
+		size = 0;
+	}
+
+	private void ensureWritable(int capacity) {
+		if (capacity <= values.capacity() && !values.isReadOnly()) {
+			return;
+		}
+		DoubleBuffer buffer = DoubleBuffer.allocate(Math.max(CAPACITY_DEFAULT, 
+				Math.max(capacity, size + (size >> 1))));
+		DoubleBuffer current = values.duplicate();
+		current.position(0);
+		current.limit(size);
+		buffer.put(current);
+		buffer.clear();
+		values = buffer;
+	}
+
+	@Override
+	public Schedule sort() {
+		// Schedules are sorted by construction
+		return this;
+	}
+
+	@Override
+	public void sort(Comparator<? super Value> comparator) {
+		throw new UnsupportedOperationException("Schedules are sorted by time and may not be reordered");
+	}
+
 }
@@ -0,0 +1,362 @@
+/* 
+ * Copyright 2016-2021 ISC Konstanz
+ * 
+ * This file is part of TH-E-EMS.
+ * For more information visit https://github.com/isc-konstanz/th-e-ems
+ * 
+ * TH-E-EMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * TH-E-EMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with TH-E-EMS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.the.ems.core.config.processor;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.JavaFileObject;
+
+/**
+ * Generates a configuration binder for every class, declaring {@code @Configuration} annotated fields.
+ * <p>
+ * The processor validates the annotations at compile time and generates typed converters for all 
+ * supported value types, to avoid the reflective type lookup when the component gets activated. 
+ * The api classes are only referenced by name, as this processor is compiled before them.
+ */
+public class ConfigurationProcessor extends AbstractProcessor {
+
+	private final static String CONFIGURATION = "org.the.ems.core.config.Configuration";
+	private final static String CONFIGURATION_BINDER = "org.the.ems.core.config.ConfigurationBinder";
+	private final static String CONFIGURATION_COLLECTION = "org.the.ems.core.config.ConfigurationCollection";
+	private final static String CONFIGURABLE = "org.the.ems.core.Configurable";
+	private final static String CHANNEL = "org.the.ems.core.data.Channel";
+	private final static String CHANNEL_COLLECTION = "org.the.ems.core.data.ChannelCollection";
+
+	private final static String VALUE_DEFAULT = "VALUE_DEFAULT";
+
+	private final static String SUFFIX = "_ConfigurationBinder";
+
+	private final static Pattern KEY = Pattern.compile("[a-zA-Z0-9_\\-\\.\\?\\*]+");
+
+	private final static Map<String, String> GETTERS = new LinkedHashMap<String, String>();
+
+	static {
+		GETTERS.put("boolean", "getBoolean");
+		GETTERS.put("java.lang.Boolean", "getBoolean");
+		GETTERS.put("byte", "getByte");
+		GETTERS.put("java.lang.Byte", "getByte");
+		GETTERS.put("short", "getShort");
+		GETTERS.put("java.lang.Short", "getShort");
+		GETTERS.put("int", "getInteger");
+		GETTERS.put("java.lang.Integer", "getInteger");
+		GETTERS.put("long", "getLong");
+		GETTERS.put("java.lang.Long", "getLong");
+		GETTERS.put("float", "getFloat");
+		GETTERS.put("java.lang.Float", "getFloat");
+		GETTERS.put("double", "getDouble");
+		GETTERS.put("java.lang.Double", "getDouble");
+		GETTERS.put("java.lang.String", "get");
+		GETTERS.put("java.net.InetAddress", "getInetAddress");
+	}
+
+	private Elements elements;
+
+	private Types types;
+
+	@Override
+	public Set<String> getSupportedAnnotationTypes() {
+		return Collections.singleton(CONFIGURATION);
+	}
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment environment) {
+		TypeElement annotation = processingEnv.getElementUtils().getTypeElement(CONFIGURATION);
+		if (annotation == null || annotations.isEmpty()) {
+			return false;
+		}
+		elements = processingEnv.getElementUtils();
+		types = processingEnv.getTypeUtils();
+		
+		Map<TypeElement, List<VariableElement>> classes = new LinkedHashMap<TypeElement, List<VariableElement>>();
+		for (Element element : environment.getElementsAnnotatedWith(annotation)) {
+			AnnotationMirror config = getAnnotation(element);
+			TypeElement type = (TypeElement) element.getEnclosingElement();
+			if (!isSubtype(type.asType(), CONFIGURABLE)) {
+				processingEnv.getMessager().printMessage(Kind.WARNING, 
+						"Configuration of class not extending Configurable will be ignored", element, config);
+				continue;
+			}
+			if (element.getKind() == ElementKind.METHOD) {
+				validate((ExecutableElement) element, config);
+				continue;
+			}
+			VariableElement field = (VariableElement) element;
+			if (validate(field, config)) {
+				classes.computeIfAbsent(type, t -> new ArrayList<VariableElement>()).add(field);
+			}
+		}
+		for (Entry<TypeElement, List<VariableElement>> binder : classes.entrySet()) {
+			try {
+				write(binder.getKey(), binder.getValue());
+				
+			} catch (IOException e) {
+				processingEnv.getMessager().printMessage(Kind.ERROR, 
+						"Unable to write configuration binder: " + e.getMessage(), binder.getKey());
+			}
+		}
+		return false;
+	}
+
+	private void validate(ExecutableElement method, AnnotationMirror config) {
+		List<String> keys = getKeys(config);
+		if (keys.size() > 1) {
+			processingEnv.getMessager().printMessage(Kind.ERROR, 
+					"Method configuration with several keys not allowed", method, config);
+		}
+		validateKeys(method, config, keys);
+	}
+
+	private boolean validate(VariableElement field, AnnotationMirror config) {
+		List<String> keys = getKeys(config);
+		validateKeys(field, config, keys);
+		
+		TypeMirror type = field.asType();
+		if (isSubtype(type, CHANNEL_COLLECTION) || isSubtype(type, CONFIGURATION_COLLECTION) || 
+				isSubtype(type, "java.util.Collection")) {
+			if (keys.contains(VALUE_DEFAULT) || keys.contains("")) {
+				processingEnv.getMessager().printMessage(Kind.ERROR, 
+						"Collection configuration needs explicit keys", field, config);
+			}
+			return false;
+		}
+		if (isSubtype(type, CHANNEL)) {
+			return false;
+		}
+		double scale = getScale(config);
+		if (scale != 1 && !isNumeric(type)) {
+			processingEnv.getMessager().printMessage(Kind.WARNING, 
+					"Scale of non-numeric configuration will be ignored", field, config);
+		}
+		PackageElement pkg = elements.getPackageOf(field);
+		if (getConverter(type, pkg) == null) {
+			if (isSupertypeOfSupported(type) || !isAccessible(type, pkg)) {
+				return false;
+			}
+			processingEnv.getMessager().printMessage(isMandatory(config) ? Kind.ERROR : Kind.WARNING, 
+					"Configuration type not supported: " + type, field, config);
+			return false;
+		}
+		return true;
+	}
+
+	private void validateKeys(Element element, AnnotationMirror config, List<String> keys) {
+		for (String key : keys) {
+			if (!key.equals(VALUE_DEFAULT) && !KEY.matcher(key).matches()) {
+				processingEnv.getMessager().printMessage(Kind.ERROR, 
+						"Invalid configuration key: \"" + key + "\"", element, config);
+			}
+		}
+	}
+
+	private void write(TypeElement type, List<VariableElement> fields) throws IOException {
+		PackageElement pkg = elements.getPackageOf(type);
+		String pkgName = pkg.getQualifiedName().toString();
+		String binaryName = elements.getBinaryName(type).toString();
+		String name = (pkg.isUnnamed() ? binaryName : binaryName.substring(pkgName.length() + 1))
+				.replace('$', '_').concat(SUFFIX);
+		
+		JavaFileObject file = processingEnv.getFiler().createSourceFile(
+				pkg.isUnnamed() ? name : pkgName + "." + name, type);
+		
+		try (PrintWriter writer = new PrintWriter(file.openWriter())) {
+			writer.println("// Generated by " + getClass().getName() + " from " + type.getQualifiedName() + ". Do not edit.");
+			if (!pkg.isUnnamed()) {
+				writer.println("package " + pkgName + ";");
+				writer.println();
+			}
+			writer.println("final class " + name + " implements " + CONFIGURATION_BINDER + " {");
+			writer.println();
+			writer.println("\t@Override");
+			writer.println("\tpublic " + CONFIGURATION_BINDER + ".Converter getConverter(String field) {");
+			writer.println("\t\tswitch (field) {");
+			for (VariableElement field : fields) {
+				writer.println("\t\tcase \"" + field.getSimpleName() + "\":");
+				writer.println("\t\t\treturn (configs, section, key) -> " + getConverter(field.asType(), pkg) + ";");
+			}
+			writer.println("\t\tdefault:");
+			writer.println("\t\t\treturn null;");
+			writer.println("\t\t}");
+			writer.println("\t}");
+			writer.println();
+			writer.println("}");
+		}
+	}
+
+	private String getConverter(TypeMirror type, PackageElement pkg) {
+		String getter = GETTERS.get(types.erasure(type).toString());
+		if (getter != null) {
+			return "configs." + getter + "(section, key)";
+		}
+		if (type.getKind() != TypeKind.DECLARED) {
+			return null;
+		}
+		if (!isAccessible(type, pkg)) {
+			return null;
+		}
+		TypeElement element = (TypeElement) ((DeclaredType) type).asElement();
+		String name = element.getQualifiedName().toString();
+		if (element.getKind() == ElementKind.ENUM) {
+			return name + ".valueOf(configs.get(section, key).toUpperCase())";
+		}
+		for (ExecutableElement method : ElementFilter.methodsIn(elements.getAllMembers(element))) {
+			if (method.getSimpleName().contentEquals("valueOf") && 
+					method.getModifiers().contains(Modifier.STATIC) && 
+					method.getModifiers().contains(Modifier.PUBLIC) && 
+					method.getParameters().size() == 1 && 
+					types.isSameType(method.getParameters().get(0).asType(), 
+							elements.getTypeElement("java.lang.String").asType()) && 
+					types.isAssignable(method.getReturnType(), types.erasure(type))) {
+				return name + ".valueOf(configs.get(section, key))";
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Types not visible in the package of the generated binder are left to be converted by reflection.
+	 */
+	private boolean isAccessible(TypeMirror type, PackageElement pkg) {
+		if (type.getKind() != TypeKind.DECLARED) {
+			return true;
+		}
+		Element element = ((DeclaredType) type).asElement();
+		boolean local = elements.getPackageOf(element).equals(pkg);
+		for (; element != null && element.getKind() != ElementKind.PACKAGE; element = element.getEnclosingElement()) {
+			if (element.getModifiers().contains(Modifier.PRIVATE) || 
+					!local && !element.getModifiers().contains(Modifier.PUBLIC)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean isNumeric(TypeMirror type) {
+		switch (types.erasure(type).toString()) {
+		case "short":
+		case "int":
+		case "long":
+		case "float":
+		case "double":
+		case "java.lang.Short":
+		case "java.lang.Integer":
+		case "java.lang.Long":
+		case "java.lang.Float":
+		case "java.lang.Double":
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * Types like Object or Number are assigned one of the supported values at runtime, without being converted here.
+	 */
+	private boolean isSupertypeOfSupported(TypeMirror type) {
+		for (String supported : GETTERS.keySet()) {
+			TypeElement element = elements.getTypeElement(supported);
+			if (element != null && types.isAssignable(element.asType(), type)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean isSubtype(TypeMirror type, String name) {
+		TypeElement element = elements.getTypeElement(name);
+		if (element == null) {
+			return false;
+		}
+		return types.isSubtype(types.erasure(type), types.erasure(element.asType()));
+	}
+
+	private AnnotationMirror getAnnotation(Element element) {
+		for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+			if (((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().contentEquals(CONFIGURATION)) {
+				return annotation;
+			}
+		}
+		return null;
+	}
+
+	private Object getValue(AnnotationMirror annotation, String name) {
+		for (Entry<? extends ExecutableElement, ? extends AnnotationValue> value : 
+				elements.getElementValuesWithDefaults(annotation).entrySet()) {
+			if (value.getKey().getSimpleName().contentEquals(name)) {
+				return value.getValue().getValue();
+			}
+		}
+		return null;
+	}
+
+	private List<String> getKeys(AnnotationMirror annotation) {
+		List<String> keys = new ArrayList<String>();
+		Object value = getValue(annotation, "value");
+		if (value instanceof List) {
+			for (Object key : (List<?>) value) {
+				keys.add(String.valueOf(((AnnotationValue) key).getValue()));
+			}
+		}
+		return keys;
+	}
+
+	private double getScale(AnnotationMirror annotation) {
+		Object scale = getValue(annotation, "scale");
+		return scale instanceof Number ? ((Number) scale).doubleValue() : 1;
+	}
+
+	private boolean isMandatory(AnnotationMirror annotation) {
+		Object mandatory = getValue(annotation, "mandatory");
+		return !(mandatory instanceof Boolean) || (Boolean) mandatory;
+	}
+
+}
@@ -28,6 +28,8 @@ public class TestChannel implements Channel {
 
 	private final String id;
 
+	private final ListenerRegistry<ValueListener> listeners = new ListenerRegistry<ValueListener>(ValueListener.class);
+
 	public TestChannel(String id) {
 		this.id = id;
 	}
@@ -36,16 +38,23 @@ public class TestChannel implements Channel {
 		return id;
 	}
 
+	public ValueListener[] getValueListeners() {
+		return listeners.get();
+	}
+
 	@Override
 	public void registerValueListener(ValueListener listener) {
+		listeners.add(listener);
 	}
 
 	@Override
 	public void deregisterValueListener(ValueListener listener) {
+		listeners.remove(listener);
 	}
 
 	@Override
 	public void deregisterValueListeners() {
+		listeners.clear();
 	}
 
 	@Override
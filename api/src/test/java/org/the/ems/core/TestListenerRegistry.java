@@ -0,0 +1,49 @@
+/* 
+ * Copyright 2016-2021 ISC Konstanz
+ * 
+ * This file is part of TH-E-EMS.
+ * For more information visit https://github.com/isc-konstanz/th-e-ems
+ * 
+ * TH-E-EMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * TH-E-EMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with TH-E-EMS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.the.ems.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class TestListenerRegistry {
+
+	@Test
+	public void testSnapshots() {
+		ListenerRegistry<String> registry = new ListenerRegistry<String>(String.class);
+		assertTrue(registry.add("a"));
+		assertTrue(registry.add("b"));
+		assertFalse(registry.add("a"));
+		assertTrue(registry.add("c"));
+		
+		String[] snapshot = registry.get();
+		assertTrue(registry.remove("b"));
+		assertFalse(registry.remove("b"));
+		assertEquals(3, snapshot.length);
+		assertEquals(2, registry.size());
+		assertEquals("c", registry.get()[1]);
+		
+		assertEquals(2, registry.clear().length);
+		assertTrue(registry.isEmpty());
+	}
+
+}
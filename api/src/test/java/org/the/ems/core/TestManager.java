@@ -32,6 +32,11 @@ public class TestManager implements ContentManagementService {
 		return new TestChannel(id);
 	}
 
+	@Override
+	public Channel getChannel(int handle) throws UnknownChannelException {
+		throw new UnknownChannelException();
+	}
+
 	@Override
 	public void registerValueListener(String id, ValueListener listener) throws UnknownChannelException {
 		throw new UnknownChannelException();
@@ -0,0 +1,251 @@
+/* 
+ * Copyright 2016-2021 ISC Konstanz
+ * 
+ * This file is part of TH-E-EMS.
+ * For more information visit https://github.com/isc-konstanz/th-e-ems
+ * 
+ * TH-E-EMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * TH-E-EMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with TH-E-EMS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.the.ems.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.BundleContext;
+import org.the.ems.core.config.Configuration;
+import org.the.ems.core.config.ConfigurationCollection.BooleanCollection;
+import org.the.ems.core.config.Configurations;
+import org.the.ems.core.data.Channel;
+import org.the.ems.core.data.ValueListener;
+import org.the.ems.core.data.ValueType;
+
+public class TestReconfiguration {
+
+	private Configurations configs;
+
+	@Before
+	public void newTestConfiguratios() {
+		configs = Configurations.create();
+		configs.put("General", "test", "Test");
+		configs.put("General", "test_string", "1");
+		configs.put("General", "test_channel1", "Channel1");
+		configs.put("General", "test_channel2", "Channel2");
+		configs.put("General", "test_float", 1.0f);
+		configs.put("General", "test_boolean", false);
+		configs.put("General", "test_enum", ValueType.BOOLEAN);
+	}
+
+	@Test
+	public void testReconfigure() throws Exception {
+		TestConfigurable configurable = new TestConfigurable(configs.snapshot());
+		
+		Configurations modified = configs.snapshot().derive()
+				.put("General", "test_float", 2.0f)
+				.put("General", "test_string", "2")
+				.build();
+		
+		Set<String> changedKeys = configurable.getConfigurations().diff(modified);
+		assertEquals(2, changedKeys.size());
+		assertTrue(configurable.isReconfigurable(changedKeys));
+		
+		configurable.doConfigure(modified, changedKeys);
+		assertEquals(20.0f, configurable.getTestFloat(), 0.0f);
+		assertEquals(2, configurable.getTestInteger());
+		assertEquals("2", configurable.getTestString());
+		assertEquals("Test", configurable.getTest());
+	}
+
+	@Test
+	public void testChannelModified() throws Exception {
+		TestConfigurable configurable = new TestConfigurable(configs.snapshot());
+		
+		Configurations modified = configs.snapshot().derive()
+				.put("General", "test_channel2", "Channel3")
+				.build();
+		
+		assertFalse(configurable.isReconfigurable(configurable.getConfigurations().diff(modified)));
+	}
+
+	@Test
+	public void testComponentModified() throws Exception {
+		Map<String, TestChannel> channels = new HashMap<String, TestChannel>();
+		BundleContext context = newBundleContext(channels);
+		
+		TestComponent component = new TestComponent();
+		component.doActivate(context, configs.snapshot());
+		assertTrue(component.isActive());
+		assertEquals(1, component.activations);
+		assertEquals(1, channels.get("Channel1").getValueListeners().length);
+		
+		ExecutorService executor = component.getContext().getExecutor();
+		component.doModified(configs.snapshot().derive()
+				.put("General", "test_float", 2.0f)
+				.build());
+		
+		assertTrue(component.isActive());
+		assertEquals(1, component.activations);
+		assertEquals(2.0f, component.testFloat, 0.0f);
+		assertEquals(1, component.changedKeys.size());
+		assertSame(executor, component.getContext().getExecutor());
+		assertEquals(1, channels.get("Channel1").getValueListeners().length);
+		
+		component.doModified(configs.snapshot().derive()
+				.put("General", "test_channel1", "Channel3")
+				.build());
+		
+		assertTrue(component.isActive());
+		assertEquals(2, component.activations);
+		assertNotSame(executor, component.getContext().getExecutor());
+		assertEquals(0, channels.get("Channel1").getValueListeners().length);
+		assertEquals(1, channels.get("Channel3").getValueListeners().length);
+		
+		component.doDeactivate();
+	}
+
+	@Test
+	public void testCollectionModified() throws Exception {
+		BundleContext context = newBundleContext(new HashMap<String, TestChannel>());
+		configs.put("General", "test_enabled", true);
+		
+		TestComponent component = new TestComponent();
+		component.doActivate(context, configs.snapshot());
+		component.doModified(configs.snapshot().derive()
+				.put("General", "test_enabled", false)
+				.put("General", "other_enabled", true)
+				.build());
+		
+		assertEquals(1, component.activations);
+		assertEquals(2, component.changedKeys.size());
+		assertFalse(component.enabled.get("test_enabled"));
+		assertTrue(component.enabled.get("other_enabled"));
+		component.doDeactivate();
+		
+		TestUnmodifiableComponent unmodifiable = new TestUnmodifiableComponent();
+		unmodifiable.doActivate(context, configs.snapshot());
+		unmodifiable.doModified(configs.snapshot().derive()
+				.put("General", "test_enabled", false)
+				.build());
+		
+		assertTrue(unmodifiable.isActive());
+		assertEquals(2, unmodifiable.activations);
+		assertFalse(unmodifiable.enabled.get("test_enabled"));
+		unmodifiable.doDeactivate();
+	}
+
+	@Test
+	public void testSectionModified() throws Exception {
+		BundleContext context = newBundleContext(new HashMap<String, TestChannel>());
+		configs.put("Circulation", "flow_temp", "Channel4");
+		
+		TestComponent component = new TestComponent();
+		component.doActivate(context, configs.snapshot());
+		
+		Configurations modified = configs.snapshot().derive()
+				.put("Circulation", "flow_temp", "Channel5")
+				.build();
+		
+		assertFalse(component.isReconfigurable(component.getConfigurations().diff(modified)));
+		
+		component.doModified(modified);
+		assertTrue(component.isActive());
+		assertEquals(2, component.activations);
+		assertEquals("Channel5", component.getConfigurations().get("Circulation", "flow_temp"));
+		component.doDeactivate();
+	}
+
+	@Test
+	public void testUnknownKeys() throws Exception {
+		TestComponent component = new TestComponent();
+		component.configure(configs.snapshot().derive()
+				.put("General", "test_flaot", 2.0f)
+				.build());
+		
+		Map<String, String> unknownKeys = component.getUnknownKeys(component.getConfigurations(), 
+				ConfigurationMetadata.get(TestComponent.class));
+		
+		assertEquals("test_float", unknownKeys.get("test_flaot"));
+		assertEquals("test_channel1", unknownKeys.get("test_channel2"));
+		assertTrue(unknownKeys.containsKey("test_string"));
+		assertNull(unknownKeys.get("test_string"));
+		assertFalse(unknownKeys.containsKey("test_float"));
+		assertFalse(unknownKeys.containsKey("id"));
+	}
+
+	private static BundleContext newBundleContext(Map<String, TestChannel> channels) {
+		TestManager manager = new TestManager() {
+			@Override
+			public Channel getChannel(String id) {
+				return channels.computeIfAbsent(id, TestChannel::new);
+			}
+		};
+		return (BundleContext) Proxy.newProxyInstance(BundleContext.class.getClassLoader(), 
+				new Class<?>[] { BundleContext.class }, (proxy, method, args) -> 
+						method.getName().equals("getService") ? manager : null);
+	}
+
+	public static class TestComponent extends Component {
+
+		@Configuration(value="*_enabled", mandatory=false)
+		private BooleanCollection enabled;
+
+		@Configuration
+		private float testFloat;
+
+		@Configuration
+		private Channel testChannel1;
+
+		private final ValueListener listener = new ValueListener() {};
+
+		private int activations = 0;
+
+		private Set<String> changedKeys;
+
+		@Override
+		protected void onActivate() throws ComponentException {
+			testChannel1.registerValueListener(listener);
+			activations++;
+		}
+
+		@Override
+		protected void onModified(Set<String> changedKeys) throws ComponentException {
+			this.changedKeys = changedKeys;
+		}
+	}
+
+	public static class TestUnmodifiableComponent extends Component {
+
+		@Configuration(value="*_enabled", mandatory=false)
+		private BooleanCollection enabled;
+
+		private int activations = 0;
+
+		@Override
+		protected void onActivate() throws ComponentException {
+			activations++;
+		}
+	}
+
+}
@@ -21,8 +21,12 @@ package org.the.ems.core.config;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Arrays;
+import java.util.Map;
+
 import org.junit.Before;
 import org.junit.Test;
 import org.the.ems.core.TestConfigurable;
@@ -66,6 +70,19 @@ public class TestConfiguration {
 		assertEquals("Channel2", configurable.getTestWildcard("test_channel2").getId());
 	}
 
+	@Test
+	public void testReconfigure() throws Exception {
+		TestConfigurable configurable = new TestConfigurable(configs);
+
+		configs.put("General", "test", "Modified");
+		configs.put("General", "test_float", 2.0f);
+		configurable.configure(configs);
+
+		assertEquals("Modified", configurable.getTest());
+		assertEquals("Modified", configurable.getTestSelection());
+		assertEquals(20.0f, configurable.getTestFloat(), 0.0f);
+	}
+
 	@Test
 	public void testDisabled() {
 		assertFalse(configs.isEnabled("Disabled"));
@@ -74,6 +91,31 @@ public class TestConfiguration {
 		assertTrue(configs.isEnabled("General"));
 	}
 
+	@Test
+	public void testSection() {
+		Map<String, Object> section = configs.getSection("Test");
+		assertEquals(2, section.size());
+		assertEquals("Section", section.get("test.test"));
+		assertNull(section.get("general.test"));
+
+		configs.put("Test", "test_added", "Added");
+		assertEquals(3, section.size());
+		assertTrue(section.containsValue("Added"));
+
+		configs.remove("test.test_added");
+		configs.remove("test.test");
+		configs.remove("test.disabled");
+		assertTrue(section.isEmpty());
+		assertFalse(configs.containsSection("Test"));
+	}
+
+	@Test
+	public void testSearch() {
+		assertEquals(Arrays.asList("test_channel1", "test_channel2"), configs.search("General", "test_channel?"));
+		assertEquals(Arrays.asList("test_string"), configs.search("General", "*string"));
+		assertTrue(configs.search("General", "test.*").isEmpty());
+	}
+
 	@Test(expected = ConfigurationException.class)
 	public void testMandatory() throws Exception {
 		new TestMandatory(configs);
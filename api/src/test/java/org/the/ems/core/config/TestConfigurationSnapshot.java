@@ -0,0 +1,84 @@
+/* 
+ * Copyright 2016-2021 ISC Konstanz
+ * 
+ * This file is part of TH-E-EMS.
+ * For more information visit https://github.com/isc-konstanz/th-e-ems
+ * 
+ * TH-E-EMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * TH-E-EMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with TH-E-EMS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.the.ems.core.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestConfigurationSnapshot {
+
+	private ConfigurationSnapshot snapshot;
+
+	@Before
+	public void newTestSnapshot() {
+		Configurations configs = Configurations.create();
+		configs.put("General", "id", "test");
+		configs.put("General", "test_channel1", "Channel1");
+		configs.put("General", "test_channel2", "Channel2");
+		configs.put("Test", "test", "Section");
+		configs.put("Service", "pid", "test.pid");
+		
+		snapshot = configs.snapshot();
+	}
+
+	@Test
+	public void testSnapshot() {
+		assertEquals(5, snapshot.size());
+		assertEquals("test", snapshot.get("General", "id"));
+		assertTrue(snapshot.isEnabled("Test"));
+		assertEquals(Arrays.asList("test_channel1", "test_channel2"), snapshot.search("General", "test_channel*"));
+		assertSame(snapshot, Configurations.snapshot(snapshot));
+	}
+
+	@Test
+	public void testDerive() {
+		ConfigurationSnapshot derived = snapshot.derive()
+				.put("General", "id", "derived")
+				.put("Derived", "test", "Derived")
+				.removeSection("service")
+				.build();
+		
+		assertEquals(5, derived.size());
+		assertEquals("derived", derived.get("General", "id"));
+		assertEquals("test", snapshot.get("General", "id"));
+		assertEquals("Channel1", derived.get("General", "test_channel1"));
+		assertFalse(derived.containsSection("Service"));
+		assertTrue(snapshot.containsSection("Service"));
+		assertTrue(derived.containsSection("Derived"));
+		assertNull(derived.get("service.pid"));
+		assertEquals(derived.size(), derived.entrySet().size());
+		assertEquals(Collections.singletonMap("derived.test", "Derived"), derived.getSection("Derived"));
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testImmutable() {
+		snapshot.put("General", "id", "modified");
+	}
+
+}
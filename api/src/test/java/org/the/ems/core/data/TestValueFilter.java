@@ -0,0 +1,61 @@
+/* 
+ * Copyright 2016-2021 ISC Konstanz
+ * 
+ * This file is part of TH-E-EMS.
+ * For more information visit https://github.com/isc-konstanz/th-e-ems
+ * 
+ * TH-E-EMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * TH-E-EMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with TH-E-EMS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.the.ems.core.data;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class TestValueFilter {
+
+	@Test
+	public void testDeadband() {
+		ValueFilter filter = ValueFilter.parse("deadband=0.5,deadbandRelative=0.1");
+		assertTrue(filter.update(0, 10.0));
+		assertFalse(filter.update(1, 10.9));
+		assertTrue(filter.update(2, 11.1));
+		assertFalse(filter.update(3, 10.1));
+		assertTrue(filter.update(4, 9.9));
+	}
+
+	@Test
+	public void testHysteresis() {
+		ValueFilter filter = ValueFilter.parse("hysteresis=1;intervalMin=10");
+		assertTrue(filter.update(0, 20.0));
+		assertFalse(filter.update(5, 21.0));
+		assertTrue(filter.update(10, 20.1));
+		assertFalse(filter.update(20, 20.0));
+		assertFalse(filter.update(30, 19.5));
+		assertTrue(filter.update(40, 19.0));
+		assertTrue(filter.update(50, 18.9));
+	}
+
+	@Test
+	public void testChanges() {
+		ValueFilter filter = new ValueFilter();
+		assertTrue(filter.update(0, 1.0));
+		assertFalse(filter.update(1, 1.0));
+		assertTrue(filter.update(2, 1.5));
+		assertFalse(filter.update(3, false));
+		assertTrue(filter.update(4, true));
+	}
+
+}
@@ -0,0 +1,62 @@
+/* 
+ * Copyright 2016-2021 ISC Konstanz
+ * 
+ * This file is part of TH-E-EMS.
+ * For more information visit https://github.com/isc-konstanz/th-e-ems
+ * 
+ * TH-E-EMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * TH-E-EMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with TH-E-EMS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.the.ems.core.data;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class TestValueSeries {
+
+	@Test
+	public void testOrder() {
+		ValueSeries series = new ValueSeries();
+		series.add(new DoubleValue(3, 3000));
+		series.add(new DoubleValue(1, 1000));
+		series.add(new DoubleValue(2, 2000));
+		series.add(new DoubleValue(0, Long.MIN_VALUE + 1));
+		series.add(new DoubleValue(4, Long.MAX_VALUE));
+
+		for (int i=1; i<series.size(); i++) {
+			assertEquals(series.doubleValue(i-1) + 1, series.doubleValue(i), 0);
+		}
+	}
+
+	@Test
+	public void testRanges() {
+		ValueList list = new ValueList();
+		for (int i=9; i>=0; i--) {
+			list.add(new IntValue(i, i*1000));
+		}
+		ValueSeries series = ValueSeries.of(list);
+		assertEquals(3, series.headSet(3000).size());
+		assertEquals(4, series.headSet(3000, true).size());
+		assertEquals(7, series.tailSet(3000).size());
+		assertEquals(6, series.tailSet(3000, false).size());
+		assertEquals(3, series.subRange(2500, 5500).getFirst().intValue());
+		assertEquals(3, series.subRange(2500, 5500).size());
+
+		ValueList[] split = series.split(4000);
+		assertEquals(5, split[0].size());
+		assertEquals(4, split[0].getLast().intValue());
+		assertEquals(5, split[1].getFirst().intValue());
+	}
+
+}
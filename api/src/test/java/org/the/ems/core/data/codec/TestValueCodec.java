@@ -0,0 +1,89 @@
+/* 
+ * Copyright 2016-2021 ISC Konstanz
+ * 
+ * This file is part of TH-E-EMS.
+ * For more information visit https://github.com/isc-konstanz/th-e-ems
+ * 
+ * TH-E-EMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * TH-E-EMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with TH-E-EMS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.the.ems.core.data.codec;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+import org.the.ems.core.data.BooleanValue;
+import org.the.ems.core.data.DoubleValue;
+import org.the.ems.core.data.IntValue;
+import org.the.ems.core.data.StringValue;
+import org.the.ems.core.data.ValueList;
+import org.the.ems.core.schedule.ControlSchedule;
+import org.the.ems.core.schedule.Schedule;
+
+public class TestValueCodec {
+
+	@Test
+	public void testValues() throws CodecException {
+		ValueList values = new ValueList();
+		values.add(new DoubleValue(1.5, 1000));
+		values.add(new IntValue(-3, 900));
+		values.add(new BooleanValue(true, 2000));
+		values.add(new StringValue("äöü", -1));
+
+		ByteBuffer buffer = ValueCodec.encode(values);
+		assertEquals(ValueCodec.sizeOf(values), buffer.remaining());
+		assertEquals(values, ValueCodec.decodeValues(buffer));
+		assertEquals(0, buffer.remaining());
+	}
+
+	@Test
+	public void testSchedule() throws CodecException {
+		ControlSchedule control = new ControlSchedule(42);
+		control.put("inv", new Schedule(900000, 900000, 1, -2, 3.5));
+
+		ByteBuffer direct = ByteBuffer.allocateDirect(ValueCodec.sizeOf(control));
+		ValueCodec.encode(control, direct);
+		direct.flip();
+
+		ControlSchedule decoded = ValueCodec.decodeControlSchedule(direct);
+		Schedule schedule = decoded.get("inv");
+		assertEquals(42, decoded.getTimestamp());
+		assertEquals(3, schedule.size());
+		assertEquals(2700000, schedule.getEpochMillis(2));
+		assertEquals(3.5, schedule.doubleValue(2), 0);
+	}
+
+	@Test
+	public void testScheduleGrown() throws CodecException {
+		Schedule grown = new Schedule(900000);
+		for (int i=0; i<200; i++) {
+			grown.add(i*900000L, i + 1);
+		}
+		ControlSchedule control = new ControlSchedule(42);
+		control.put("inv", grown);
+
+		ByteBuffer buffer = ByteBuffer.allocate(ValueCodec.sizeOf(control));
+		ValueCodec.encode(control, buffer);
+		buffer.flip();
+
+		Schedule schedule = ValueCodec.decodeControlSchedule(buffer).get("inv");
+		assertEquals(200, schedule.size());
+		assertEquals(1, schedule.doubleValue(0), 0);
+		assertEquals(151, schedule.doubleValue(150), 0);
+		assertEquals(200, schedule.doubleValue(199), 0);
+		assertEquals(199*900000L, schedule.getEpochMillis(199));
+	}
+
+}
@@ -0,0 +1,86 @@
+/* 
+ * Copyright 2016-2021 ISC Konstanz
+ * 
+ * This file is part of TH-E-EMS.
+ * For more information visit https://github.com/isc-konstanz/th-e-ems
+ * 
+ * TH-E-EMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * TH-E-EMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with TH-E-EMS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.the.ems.core.schedule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.DoubleBuffer;
+
+import org.junit.Test;
+import org.the.ems.core.data.DoubleValue;
+import org.the.ems.core.data.Value;
+
+public class TestSchedule {
+
+	private static final int INTERVAL = 60000;
+
+	@Test
+	public void testAppend() {
+		Schedule schedule = new Schedule(INTERVAL, new DoubleValue(1, 0));
+		assertTrue(schedule.add(2));
+		assertTrue(schedule.add(INTERVAL*2, 3));
+		assertFalse(schedule.add(INTERVAL*4, 4));
+		assertFalse(schedule.add(new DoubleValue(5, INTERVAL)));
+
+		assertEquals(3, schedule.size());
+		assertEquals(0, schedule.getStartTime());
+		assertEquals(INTERVAL*3, schedule.getEndTime());
+		assertEquals(2, schedule.getIndex(INTERVAL*2 + 1));
+		assertEquals(-1, schedule.getIndex(INTERVAL*3));
+	}
+
+	@Test
+	public void testColumns() {
+		Schedule schedule = new Schedule(1000, INTERVAL, 0, 1, 2, 3);
+		for (int i=0; i<schedule.size(); i++) {
+			Value value = schedule.get(i);
+			assertEquals(value.getEpochMillis(), schedule.getEpochMillis(i));
+			assertEquals(value.doubleValue(), schedule.doubleValue(i), 0);
+		}
+		schedule.remove(0);
+		assertEquals(1000 + INTERVAL, schedule.getStartTime());
+		assertEquals(1, schedule.getFirst().doubleValue(), 0);
+		assertEquals(3, schedule.getLast().doubleValue(), 0);
+	}
+
+	@Test
+	public void testGrow() {
+		Schedule schedule = new Schedule(INTERVAL);
+		for (int i=0; i<200; i++) {
+			assertTrue(schedule.add(i*INTERVAL, i + 1));
+		}
+		assertEquals(200, schedule.size());
+		assertEquals(1, schedule.doubleValue(0), 0);
+		assertEquals(151, schedule.doubleValue(150), 0);
+
+		double[] array = schedule.toDoubleArray();
+		assertEquals(200, array.length);
+		assertEquals(1, array[0], 0);
+		assertEquals(200, array[199], 0);
+
+		DoubleBuffer buffer = schedule.toDoubleBuffer();
+		assertEquals(200, buffer.remaining());
+		assertEquals(1, buffer.get(0), 0);
+		assertEquals(151, buffer.get(150), 0);
+	}
+
+}
@@ -313,23 +313,24 @@ public abstract class Heating extends Flexibility implements HeatingService {
 		
 		long startTimeLast = 0;
 		for (int i=0; i<schedule.size(); i++) {
-			Value value = schedule.get(i);
-			if (value.doubleValue() != 0 && value.doubleValue() > getMaxPower() || value.doubleValue() < getMinPower()) {
-				throw new ComponentException(MessageFormat.format("Invalid power value: {0}", value));
+			long time = schedule.getEpochMillis(i);
+			double value = schedule.doubleValue(i);
+			if (value != 0 && value > getMaxPower() || value < getMinPower()) {
+				throw new ComponentException(MessageFormat.format("Invalid power value: {0}", schedule.get(i)));
 			}
-			else if (value.doubleValue() == 0) {
-				if (value.getEpochMillis() - startTimeLast < getMinRuntime()) {
+			else if (value == 0) {
+				if (time - startTimeLast < getMinRuntime()) {
 					logger.debug("Unable to stop component after interval shorter than {}mins", getMinRuntime()/60000);
 					continue;
 				}
-				onStop(container, value);
+				onStop(container, schedule.get(i));
 			}
-			else if (i == 0 || schedule.get(i-1).doubleValue() == 0) {
-				startTimeLast = value.getEpochMillis();
-				onStart(container, value);
+			else if (i == 0 || schedule.doubleValue(i-1) == 0) {
+				startTimeLast = time;
+				onStart(container, schedule.get(i));
 			}
-			else if (i == 0 || schedule.get(i-1).doubleValue() != value.doubleValue()) {
-				onSet(container, value);
+			else if (i == 0 || schedule.doubleValue(i-1) != value) {
+				onSet(container, schedule.get(i));
 			}
 		}
 		onSchedule(container, schedule);
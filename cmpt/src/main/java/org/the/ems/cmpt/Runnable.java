@@ -20,8 +20,6 @@
 package org.the.ems.cmpt;
 
 import java.text.MessageFormat;
-import java.util.LinkedList;
-import java.util.List;
 import java.util.Map.Entry;
 
 import org.slf4j.Logger;
@@ -30,6 +28,7 @@ import org.the.ems.core.Component;
 import org.the.ems.core.ComponentBusyException;
 import org.the.ems.core.ComponentException;
 import org.the.ems.core.EnergyManagementException;
+import org.the.ems.core.ListenerRegistry;
 import org.the.ems.core.MaintenanceException;
 import org.the.ems.core.RunState;
 import org.the.ems.core.RunStateListener;
@@ -79,7 +78,8 @@ public abstract class Runnable extends Component implements RunnableService {
 	private volatile long startTimeLast = Long.MIN_VALUE;
 	private volatile long stopTimeLast = Long.MIN_VALUE;
 
-	private final List<RunStateListener> runStateListeners = new LinkedList<RunStateListener>();
+	private final ListenerRegistry<RunStateListener> runStateListeners = 
+			new ListenerRegistry<RunStateListener>(RunStateListener.class);
 
 	@Override
 	public RunState getState() {
@@ -94,38 +94,27 @@ public abstract class Runnable extends Component implements RunnableService {
 
 	@Override
 	public void registerStateListener(RunStateListener listener) throws ComponentException {
-		synchronized (runStateListeners) {
-			if (!runStateListeners.contains(listener)) {
-				runStateListeners.add(listener);
-			}
-		}
+		runStateListeners.add(listener);
 	}
 
 	@Override
 	public void deregisterStateListener(RunStateListener listener) throws ComponentException {
-		synchronized (runStateListeners) {
-			if (runStateListeners.contains(listener)) {
-				runStateListeners.remove(listener);
-			}
-		}
+		runStateListeners.remove(listener);
 	}
 
 	protected void deregisterStateListeners() {
-		synchronized (runStateListeners) {
-			runStateListeners.clear();
-		}
+		runStateListeners.clear();
 	}
 
 	public void setState(RunState state) {
 		if (runState != state) {
-			synchronized (runStateListeners) {
-				for (RunStateListener stateListener : runStateListeners) {
-					try {
-						stateListener.onStateChanged(state);
-						
-					} catch (EnergyManagementException e) {
-						logger.warn("Error notifying listener of state change: {}", e.getMessage());
-					}
+			RunStateListener[] stateListeners = runStateListeners.get();
+			for (int i = 0; i < stateListeners.length; i++) {
+				try {
+					stateListeners[i].onStateChanged(state);
+					
+				} catch (EnergyManagementException e) {
+					logger.warn("Error notifying listener of state change: {}", e.getMessage());
 				}
 			}
 			try {
@@ -273,21 +262,21 @@ public abstract class Runnable extends Component implements RunnableService {
 		
 		long startTimeLast = 0;
 		for (int i=0; i<schedule.size(); i++) {
-			Value value = schedule.get(i);
-			long time = value.getEpochMillis();
-			if (value.doubleValue() == getStartValue(time).doubleValue()) {
+			long time = schedule.getEpochMillis(i);
+			double value = schedule.doubleValue(i);
+			if (value == getStartValue(time).doubleValue()) {
 				if (time - startTimeLast < runtimeMin) {
 					logger.debug("Unable to stop component after interval shorter than {}mins", runtimeMin/60000);
 					continue;
 				}
-				onStop(writeContainer, value);
+				onStop(writeContainer, schedule.get(i));
 			}
-			else if (i == 0 || schedule.get(i-1).doubleValue() == 0) {
+			else if (i == 0 || schedule.doubleValue(i-1) == 0) {
 				startTimeLast = time;
-				onStart(writeContainer, value);
+				onStart(writeContainer, schedule.get(i));
 			}
-			else if (i == 0 || schedule.get(i-1).doubleValue() != value.doubleValue()) {
-				onSet(writeContainer, value);
+			else if (i == 0 || schedule.doubleValue(i-1) != value) {
+				onSet(writeContainer, schedule.get(i));
 			}
 		}
 		onSchedule(writeContainer, schedule);
@@ -654,10 +643,9 @@ public abstract class Runnable extends Component implements RunnableService {
 				try {
 					onStateChanged(value);
 					
-					synchronized (runStateListeners) {
-						for (RunStateListener stateListener : runStateListeners) {
-							stateListener.onStateChanged(value);
-						}
+					RunStateListener[] stateListeners = runStateListeners.get();
+					for (int i = 0; i < stateListeners.length; i++) {
+						stateListeners[i].onStateChanged(value);
 					}
 				} catch (EnergyManagementException e) {
 					logger.warn("Error notifying of state change: {}", e.getMessage());
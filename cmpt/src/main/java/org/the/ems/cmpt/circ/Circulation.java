@@ -34,6 +34,7 @@ import org.the.ems.core.data.Channel;
 import org.the.ems.core.data.DoubleValue;
 import org.the.ems.core.data.InvalidValueException;
 import org.the.ems.core.data.Value;
+import org.the.ems.core.data.ValueList;
 
 public class Circulation extends Component implements CirculationTemperatureCallbacks {
 
@@ -184,12 +185,45 @@ public class Circulation extends Component implements CirculationTemperatureCall
 		}
 	}
 
-	private class FlowListener extends PowerListener {
+	private abstract class FlowListener extends PowerListener {
 
 		public FlowListener(Channel energy) {
 			super(energy);
 		}
 
+		/**
+		 * Get the liters of water flowing since the last received value.
+		 * 
+		 * @return the flow in liters, or NaN if no flow can be determined yet
+		 */
+		protected abstract double getLiters(double value, long timestamp);
+
+		@Override
+		public void onValueUpdated(Value value) {
+			long flowTime = value.getEpochMillis();
+			double flow = getLiters(value.doubleValue(), flowTime);
+			if (!Double.isNaN(flow)) {
+				onLitersReceived(flow, flowTime);
+			}
+		}
+
+		@Override
+		public void onValuesUpdated(ValueList values) {
+			// Sum up the flow of the whole burst and integrate it at once
+			double flow = Double.NaN;
+			long flowTime = -1;
+			for (int i = 0; i < values.size(); i++) {
+				double liters = getLiters(values.doubleValue(i), values.getEpochMillis(i));
+				if (!Double.isNaN(liters)) {
+					flow = Double.isNaN(flow) ? liters : flow + liters;
+					flowTime = values.getEpochMillis(i);
+				}
+			}
+			if (!Double.isNaN(flow)) {
+				onLitersReceived(flow, flowTime);
+			}
+		}
+
 		protected void onLitersReceived(double flow, long timestamp) {
 			logger.debug("Received {}l water flowing in circulation", flow);
 
@@ -242,6 +276,7 @@ public class Circulation extends Component implements CirculationTemperatureCall
 
 	private class FlowVolumeListener extends FlowListener {
 
+		private double flowVolumeLast = Double.NaN;
 		private long flowTimeLast = -1;
 
 		public FlowVolumeListener(Channel energy) {
@@ -249,15 +284,16 @@ public class Circulation extends Component implements CirculationTemperatureCall
 		}
 
 		@Override
-		public void onValueReceived(Value volume) {
-			long flowTime = volume.getEpochMillis();
+		protected double getLiters(double volume, long flowTime) {
+			double flow = Double.NaN;
 			if (flowTimeLast > 0) {
 				long flowTimeDelta = flowTime - flowTimeLast;
-				// Flow since last calculation in liters
-				double flow = volume.doubleValue()*((double) flowTimeDelta/3600000);
-				onLitersReceived(flow, flowTime);
+				// Flow since last calculation in liters, with the volume held since the last update
+				flow = flowVolumeLast*((double) flowTimeDelta/3600000);
 			}
+			flowVolumeLast = volume;
 			flowTimeLast = flowTime;
+			return flow;
 		}
 	}
 
@@ -270,14 +306,14 @@ public class Circulation extends Component implements CirculationTemperatureCall
 		}
 
 		@Override
-		public void onValueReceived(Value counter) {
-			long flowTime = counter.getEpochMillis();
+		protected double getLiters(double counter, long flowTime) {
+			double flow = Double.NaN;
 			if (!flowCounterLast.isNaN()) {
 				// Flow since last calculation in liters
-				double flow = counter.doubleValue() - flowCounterLast;
-				onLitersReceived(flow, flowTime);
+				flow = counter - flowCounterLast;
 			}
-			flowCounterLast = counter.doubleValue();
+			flowCounterLast = counter;
+			return flow;
 		}
 	}
 
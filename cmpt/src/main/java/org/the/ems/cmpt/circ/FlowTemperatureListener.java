@@ -49,7 +49,7 @@ public class FlowTemperatureListener implements ValueListener {
 	}
 
 	@Override
-	public void onValueReceived(Value value) {
+	public void onValueUpdated(Value value) {
 		callbacks.onTemperatureReceived(type, value);
 	}
 
@@ -22,12 +22,18 @@ package org.the.ems.cmpt.util;
 import org.the.ems.core.data.Channel;
 import org.the.ems.core.data.DoubleValue;
 import org.the.ems.core.data.Value;
+import org.the.ems.core.data.ValueList;
 import org.the.ems.core.data.ValueListener;
 
+/**
+ * Integrates the energy of a power channel. Power values are subscribed to as filtered updates, 
+ * so each value is held until the next update and integrated over the time passed since.
+ */
 public class PowerListener implements ValueListener {
 
 	protected Channel energy;
 	protected Value energyLatest = null;
+	protected Value powerLatest = null;
 
 	public PowerListener() {
 	}
@@ -54,19 +60,53 @@ public class PowerListener implements ValueListener {
 	}
 
 	protected void onPowerReceived(Value powerValue) {
+		Value powerHeld = powerLatest != null ? powerLatest : powerValue;
+		powerLatest = powerValue;
 		if (energyLatest == null) {
 			energyLatest = new DoubleValue(0, powerValue.getEpochMillis());
 			return;
 		}
 		long deltaSeconds = (powerValue.getEpochMillis() - energyLatest.getEpochMillis())/1000;
 		double deltaHours = (double) deltaSeconds/3600;
-		Value deltaEnergy = new DoubleValue(powerValue.doubleValue()/1000*deltaHours);
+		Value deltaEnergy = new DoubleValue(powerHeld.doubleValue()/1000*deltaHours);
 		this.onEnergyReceived(deltaEnergy);
 	}
 
+	protected void onPowerReceived(ValueList powerValues) {
+		int size = powerValues.size();
+		if (size == 0) {
+			return;
+		}
+		int start = 0;
+		if (energyLatest == null) {
+			energyLatest = new DoubleValue(0, powerValues.getEpochMillis(0));
+			start = 1;
+		}
+		double powerHeld = powerLatest != null ? powerLatest.doubleValue() : powerValues.doubleValue(0);
+		long timeLast = energyLatest.getEpochMillis();
+		double deltaEnergy = 0;
+		for (int i = start; i < size; i++) {
+			long time = powerValues.getEpochMillis(i);
+			long deltaSeconds = (time - timeLast)/1000;
+			double deltaHours = (double) deltaSeconds/3600;
+			deltaEnergy += powerHeld/1000*deltaHours;
+			powerHeld = powerValues.doubleValue(i);
+			timeLast = time;
+		}
+		powerLatest = powerValues.get(size - 1);
+		if (start < size) {
+			this.onEnergyReceived(new DoubleValue(deltaEnergy, timeLast));
+		}
+	}
+
 	@Override
-	public void onValueReceived(Value value) {
+	public void onValueUpdated(Value value) {
 		this.onPowerReceived(value);
 	}
 
+	@Override
+	public void onValuesUpdated(ValueList values) {
+		this.onPowerReceived(values);
+	}
+
 }
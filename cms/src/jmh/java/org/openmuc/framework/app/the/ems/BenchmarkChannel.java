@@ -0,0 +1,252 @@
+/* 
+ * Copyright 2016-2021 ISC Konstanz
+ * 
+ * This file is part of TH-E-EMS.
+ * For more information visit https://github.com/isc-konstanz/th-e-ems
+ * 
+ * TH-E-EMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * TH-E-EMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with TH-E-EMS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openmuc.framework.app.the.ems;
+
+import java.util.List;
+
+import org.openmuc.framework.data.Flag;
+import org.openmuc.framework.data.FutureValue;
+import org.openmuc.framework.data.Record;
+import org.openmuc.framework.data.Value;
+import org.openmuc.framework.data.ValueType;
+import org.openmuc.framework.dataaccess.Channel;
+import org.openmuc.framework.dataaccess.ChannelState;
+import org.openmuc.framework.dataaccess.DeviceState;
+import org.openmuc.framework.dataaccess.ReadRecordContainer;
+import org.openmuc.framework.dataaccess.RecordListener;
+import org.openmuc.framework.dataaccess.WriteValueContainer;
+
+/**
+ * Minimal OpenMUC channel of a fixed value type, without any driver or data logger attached.
+ */
+class BenchmarkChannel implements Channel {
+
+	private final String id;
+
+	private final ValueType type;
+
+	private Record record;
+
+	BenchmarkChannel(String id, ValueType type) {
+		this.id = id;
+		this.type = type;
+	}
+
+	@Override
+	public String getId() {
+		return id;
+	}
+
+	@Override
+	public String getDescription() {
+		return null;
+	}
+
+	@Override
+	public String getAddress() {
+		return null;
+	}
+
+	@Override
+	public String getUnit() {
+		return null;
+	}
+
+	@Override
+	public ValueType getValueType() {
+		return type;
+	}
+
+	@Override
+	public int getValueTypeLength() {
+		return 0;
+	}
+
+	@Override
+	public double getValueOffset() {
+		return 0;
+	}
+
+	@Override
+	public double getScalingFactor() {
+		return 1;
+	}
+
+	@Override
+	public int getSamplingInterval() {
+		return 0;
+	}
+
+	@Override
+	public int getSamplingTimeOffset() {
+		return 0;
+	}
+
+	@Override
+	public boolean isListening() {
+		return true;
+	}
+
+	@Override
+	public String getSettings() {
+		return null;
+	}
+
+	@Override
+	public int getSamplingTimeout() {
+		return 0;
+	}
+
+	@Override
+	public int getLoggingInterval() {
+		return 0;
+	}
+
+	@Override
+	public int getLoggingDelayMaximum() {
+		return 0;
+	}
+
+	@Override
+	public int getLoggingTimeOffset() {
+		return 0;
+	}
+
+	@Override
+	public String getLoggingSettings() {
+		return null;
+	}
+
+	@Override
+	public double getLoggingTolerance() {
+		return 0;
+	}
+
+	@Override
+	public boolean isloggingAverage() {
+		return false;
+	}
+
+	@Override
+	public boolean isLoggingEvent() {
+		return false;
+	}
+
+	@Override
+	public String getDriverId() {
+		return null;
+	}
+
+	@Override
+	public String getDeviceId() {
+		return null;
+	}
+
+	@Override
+	public String getDeviceDescription() {
+		return null;
+	}
+
+	@Override
+	public String getDeviceAddress() {
+		return null;
+	}
+
+	@Override
+	public String getDeviceSettings() {
+		return null;
+	}
+
+	@Override
+	public ChannelState getChannelState() {
+		return ChannelState.CONNECTED;
+	}
+
+	@Override
+	public DeviceState getDeviceState() {
+		return DeviceState.CONNECTED;
+	}
+
+	@Override
+	public void addListener(RecordListener listener) {
+		// Records are passed to the wrapper directly
+	}
+
+	@Override
+	public void removeListener(RecordListener listener) {
+		// Records are passed to the wrapper directly
+	}
+
+	@Override
+	public boolean isConnected() {
+		return true;
+	}
+
+	@Override
+	public Record getLatestRecord() {
+		return record;
+	}
+
+	@Override
+	public void setLatestRecord(Record record) {
+		this.record = record;
+	}
+
+	@Override
+	public Flag write(Value value) {
+		return Flag.VALID;
+	}
+
+	@Override
+	public void writeFuture(List<FutureValue> values) {
+		// Future values are not scheduled without a driver
+	}
+
+	@Override
+	public WriteValueContainer getWriteContainer() {
+		return null;
+	}
+
+	@Override
+	public Record read() {
+		return record;
+	}
+
+	@Override
+	public ReadRecordContainer getReadContainer() {
+		return null;
+	}
+
+	@Override
+	public Record getLoggedRecord(long time) {
+		return null;
+	}
+
+	@Override
+	public List<Record> getLoggedRecords(long start) {
+		return null;
+	}
+
+	@Override
+	public List<Record> getLoggedRecords(long start, long end) {
+		return null;
+	}
+
+}
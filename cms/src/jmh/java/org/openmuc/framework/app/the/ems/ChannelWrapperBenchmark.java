@@ -0,0 +1,186 @@
+/* 
+ * Copyright 2016-2021 ISC Konstanz
+ * 
+ * This file is part of TH-E-EMS.
+ * For more information visit https://github.com/isc-konstanz/th-e-ems
+ * 
+ * TH-E-EMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * TH-E-EMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with TH-E-EMS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openmuc.framework.app.the.ems;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openmuc.framework.data.DoubleValue;
+import org.openmuc.framework.data.Flag;
+import org.openmuc.framework.data.Record;
+import org.openmuc.framework.data.ValueType;
+import org.the.ems.core.data.Value;
+import org.the.ems.core.data.ValueFilter;
+import org.the.ems.core.data.ValueListener;
+import org.the.ems.core.data.event.Event;
+import org.the.ems.core.data.event.EventType;
+import org.the.ems.core.data.event.ValueEvent;
+
+/**
+ * Measures the per-record cost of {@link ChannelWrapper#newRecord(Record)}. 
+ * Plain listeners only override the typed callbacks and are delivered to without allocating 
+ * any {@link Event}, while event listeners override {@link ValueListener#onEvent(Event)}. 
+ * The baseline reproduces the previous delivery, allocating an event per type and iterating 
+ * all listeners once per event.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChannelWrapperBenchmark {
+
+	@Param({"1", "8"})
+	int listeners;
+
+	@Param({"false", "true"})
+	boolean events;
+
+	private ChannelWrapper channel;
+
+	private BaselineChannel baseline;
+
+	private Record[] records;
+
+	private int index = 0;
+
+	@Setup
+	public void setup(Blackhole blackhole) {
+		ChannelRegistry registry = new ChannelRegistry();
+		channel = registry.register(new BenchmarkChannel("benchmark", ValueType.DOUBLE), new ValueFilter());
+		baseline = new BaselineChannel(channel);
+		for (int i = 0; i < listeners; i++) {
+			ValueListener listener = events ? new EventListener(blackhole) : new PlainListener(blackhole);
+			channel.registerValueListener(listener);
+			baseline.listeners.add(listener);
+		}
+		// Alternate between values, so every second record is delivered as changed
+		long time = System.currentTimeMillis();
+		records = new Record[1024];
+		for (int i = 0; i < records.length; i++) {
+			records[i] = new Record(new DoubleValue(i % 4 < 2 ? 1 : 2), time + i, Flag.VALID);
+		}
+	}
+
+	@Benchmark
+	public void newRecord() {
+		channel.newRecord(records[index++ & (records.length - 1)]);
+	}
+
+	@Benchmark
+	public void newRecordBaseline() {
+		baseline.newRecord(records[index++ & (records.length - 1)]);
+	}
+
+	/**
+	 * Delivery of received records, as done by the channel wrapper before listeners were 
+	 * notified in a single pass.
+	 */
+	private static class BaselineChannel {
+
+		private final ChannelWrapper source;
+
+		private final List<ValueListener> listeners = new LinkedList<ValueListener>();
+
+		private Value lastValue;
+
+		private BaselineChannel(ChannelWrapper source) {
+			this.source = source;
+		}
+
+		private void newRecord(Record record) {
+			if (record.getFlag() != Flag.VALID) {
+				return;
+			}
+			Value newValue = new org.the.ems.core.data.DoubleValue(record.getValue().asDouble(), record.getTimestamp());
+			newEvent(new ValueEvent(source, newValue, EventType.RECEIVED));
+			if (lastValue == null || newValue.doubleValue() != lastValue.doubleValue()) {
+				newEvent(new ValueEvent(source, newValue, EventType.CHANGED));
+			}
+			lastValue = newValue;
+		}
+
+		private void newEvent(ValueEvent event) {
+			for (ValueListener listener : listeners) {
+				listener.onEvent(event);
+				
+				switch (event.getType()) {
+				case RECEIVED:
+					listener.onValueReceived(event.getValue());
+					break;
+				case CHANGED:
+					listener.onValueChanged(event.getValue());
+					break;
+				default:
+					break;
+				}
+			}
+		}
+	}
+
+	private static class PlainListener implements ValueListener {
+
+		private final Blackhole blackhole;
+
+		private PlainListener(Blackhole blackhole) {
+			this.blackhole = blackhole;
+		}
+
+		@Override
+		public void onValueReceived(Value value) {
+			blackhole.consume(value);
+		}
+
+		@Override
+		public void onValueChanged(Value value) {
+			blackhole.consume(value);
+		}
+	}
+
+	private static class EventListener extends PlainListener {
+
+		private final Blackhole blackhole;
+
+		private EventListener(Blackhole blackhole) {
+			super(blackhole);
+			this.blackhole = blackhole;
+		}
+
+		@Override
+		public void onEvent(Event event) {
+			blackhole.consume(event);
+		}
+	}
+
+}
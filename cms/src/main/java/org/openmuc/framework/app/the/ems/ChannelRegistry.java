@@ -0,0 +1,205 @@
+/* 
+ * Copyright 2016-2021 ISC Konstanz
+ * 
+ * This file is part of TH-E-EMS.
+ * For more information visit https://github.com/isc-konstanz/th-e-ems
+ * 
+ * TH-E-EMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * TH-E-EMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with TH-E-EMS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openmuc.framework.app.the.ems;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.the.ems.core.data.Value;
+import org.the.ems.core.data.ValueFilter;
+
+/**
+ * Registry of all resolved channels, assigning dense integer handles in the order the channels 
+ * were first resolved.
+ * <p>
+ * The latest decoded value of each channel is held in a table indexed by handle. The table is 
+ * organized in fixed size pages, which will never be replaced once allocated, so values can be 
+ * read and written without locking while new channels are being registered.
+ * <p>
+ * Every write is counted by its page before and after the value is set. Readers of several values 
+ * compare the counters of the pages they read, to retry reads that overlapped with a write to one 
+ * of them and return a consistent snapshot. Writes to other pages will not interfere with a read.
+ */
+public class ChannelRegistry {
+
+	private static final int PAGE_SHIFT = 6;
+	private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+	private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+	private static final int READ_RETRIES = 64;
+
+	private final EventDispatcher dispatcher;
+
+	private final Map<String, ChannelWrapper> ids = new ConcurrentHashMap<String, ChannelWrapper>();
+
+	private volatile ChannelWrapper[] channels = new ChannelWrapper[0];
+
+	private volatile Page[] pages = new Page[0];
+
+	public ChannelRegistry() {
+		this(null);
+	}
+
+	public ChannelRegistry(EventDispatcher dispatcher) {
+		this.dispatcher = dispatcher;
+	}
+
+	public ChannelWrapper get(String id) {
+		return ids.get(id);
+	}
+
+	public ChannelWrapper get(int handle) {
+		ChannelWrapper[] channels = this.channels;
+		if (handle < 0 || handle >= channels.length) {
+			return null;
+		}
+		return channels[handle];
+	}
+
+	public int size() {
+		return channels.length;
+	}
+
+	public synchronized ChannelWrapper register(org.openmuc.framework.dataaccess.Channel channel, ValueFilter filter) {
+		ChannelWrapper wrapper = ids.get(channel.getId());
+		if (wrapper != null) {
+			return wrapper;
+		}
+		int handle = channels.length;
+		if ((handle & PAGE_MASK) == 0) {
+			Page[] pages = Arrays.copyOf(this.pages, this.pages.length + 1);
+			pages[pages.length - 1] = new Page();
+			this.pages = pages;
+		}
+		wrapper = new ChannelWrapper(this, handle, channel, filter, dispatcher);
+		
+		ChannelWrapper[] channels = Arrays.copyOf(this.channels, handle + 1);
+		channels[handle] = wrapper;
+		this.channels = channels;
+		
+		ids.put(channel.getId(), wrapper);
+		
+		return wrapper;
+	}
+
+	public synchronized void clear() {
+		for (ChannelWrapper channel : channels) {
+			channel.deregisterValueListeners();
+			channel.detach();
+		}
+		ids.clear();
+		channels = new ChannelWrapper[0];
+		pages = new Page[0];
+	}
+
+	public Value getLatestValue(int handle) {
+		Page page = getPage(pages, handle);
+		if (page == null) {
+			return null;
+		}
+		return page.get(handle & PAGE_MASK);
+	}
+
+	/**
+	 * Get the latest values of several channels as a consistent snapshot. 
+	 * The values will be read again, until no value of the read pages was written while reading them. 
+	 * If writes keep overlapping with the read for {@value #READ_RETRIES} retries, the values of the 
+	 * last attempt will be returned, which may not be consistent.
+	 * 
+	 * @param handles the handles of the channels to read
+	 * 
+	 * @return the latest values, in the order of the handles
+	 */
+	public Value[] getLatestValues(int... handles) {
+		Page[] pages = this.pages;
+		Value[] snapshot = new Value[handles.length];
+		long[] writes = new long[handles.length];
+		for (int retries = 0; retries < READ_RETRIES; retries++) {
+			if (readLatestValues(pages, handles, snapshot, writes)) {
+				return snapshot;
+			}
+			Thread.yield();
+		}
+		readLatestValues(pages, handles, snapshot, writes);
+		return snapshot;
+	}
+
+	private static boolean readLatestValues(Page[] pages, int[] handles, Value[] snapshot, long[] writes) {
+		boolean consistent = true;
+		for (int i = 0; i < handles.length; i++) {
+			Page page = getPage(pages, handles[i]);
+			if (page == null) {
+				snapshot[i] = null;
+				continue;
+			}
+			long done = page.writesDone.get();
+			long begun = page.writesBegun.get();
+			if (begun != done) {
+				consistent = false;
+			}
+			writes[i] = begun;
+			snapshot[i] = page.get(handles[i] & PAGE_MASK);
+		}
+		for (int i = 0; i < handles.length && consistent; i++) {
+			Page page = getPage(pages, handles[i]);
+			if (page != null && page.writesBegun.get() != writes[i]) {
+				consistent = false;
+			}
+		}
+		return consistent;
+	}
+
+	void setLatestValue(int handle, Value value) {
+		Page page = getPage(pages, handle);
+		if (page == null) {
+			return;
+		}
+		page.writesBegun.incrementAndGet();
+		page.set(handle & PAGE_MASK, value);
+		page.writesDone.incrementAndGet();
+	}
+
+	private static Page getPage(Page[] pages, int handle) {
+		int page = handle >>> PAGE_SHIFT;
+		if (handle < 0 || page >= pages.length) {
+			return null;
+		}
+		return pages[page];
+	}
+
+	/**
+	 * Page of latest values, counting the writes of its values.
+	 */
+	private static class Page extends AtomicReferenceArray<Value> {
+
+		private static final long serialVersionUID = 8365912845871540278L;
+
+		private final AtomicLong writesBegun = new AtomicLong();
+		private final AtomicLong writesDone = new AtomicLong();
+
+		private Page() {
+			super(PAGE_SIZE);
+		}
+	}
+
+}
@@ -20,17 +20,15 @@
 package org.openmuc.framework.app.the.ems;
 
 import static org.the.ems.core.data.InvalidValueException.Severity.ERROR;
-import static org.the.ems.core.data.InvalidValueException.Severity.INFO;
-import static org.the.ems.core.data.InvalidValueException.Severity.WARNING;
 
 import java.util.LinkedList;
 import java.util.List;
-import java.util.ListIterator;
-import java.util.Objects;
 
 import org.openmuc.framework.data.Flag;
 import org.openmuc.framework.data.Record;
 import org.openmuc.framework.dataaccess.RecordListener;
+import org.openmuc.framework.dataaccess.WriteValueContainer;
+import org.the.ems.core.ListenerRegistry;
 import org.the.ems.core.data.BooleanValue;
 import org.the.ems.core.data.ByteValue;
 import org.the.ems.core.data.Channel;
@@ -42,8 +40,10 @@ import org.the.ems.core.data.LongValue;
 import org.the.ems.core.data.ShortValue;
 import org.the.ems.core.data.StringValue;
 import org.the.ems.core.data.Value;
+import org.the.ems.core.data.ValueFilter;
 import org.the.ems.core.data.ValueList;
 import org.the.ems.core.data.ValueListener;
+import org.the.ems.core.data.ValueSeries;
 import org.the.ems.core.data.event.ErrorEvent;
 import org.the.ems.core.data.event.Event;
 import org.the.ems.core.data.event.EventType;
@@ -51,14 +51,37 @@ import org.the.ems.core.data.event.ValueEvent;
 
 public class ChannelWrapper implements Channel, RecordListener {
 
+	protected final ChannelRegistry registry;
+
 	protected final org.openmuc.framework.dataaccess.Channel channel;
-	protected final List<ValueListener> listeners;
+	protected final ListenerRegistry<ValueListener> listeners;
+
+	protected final ValueFilter filter;
+
+	protected final int handle;
+
+	protected final EventDispatcher dispatcher;
 
 	protected Value lastValue = null;
 
-	public ChannelWrapper(org.openmuc.framework.dataaccess.Channel channel) {
+	private ValueSeries futureValues = new ValueSeries();
+
+	private volatile Listeners snapshot = Listeners.EMPTY;
+
+	private volatile boolean attached = false;
+
+	private final InvalidValueException[] exceptions = new InvalidValueException[RecordDiagnostic.SIZE];
+
+	private RecordDiagnostic lastDiagnostic = null;
+
+	ChannelWrapper(ChannelRegistry registry, int handle, 
+			org.openmuc.framework.dataaccess.Channel channel, ValueFilter filter, EventDispatcher dispatcher) {
+		this.registry = registry;
+		this.handle = handle;
+		this.dispatcher = dispatcher;
 		this.channel = channel;
-		this.listeners = new LinkedList<ValueListener>();
+		this.listeners = new ListenerRegistry<ValueListener>(ValueListener.class);
+		this.filter = filter;
 	}
 
 	@Override
@@ -66,10 +89,18 @@ public class ChannelWrapper implements Channel, RecordListener {
 		return channel.getId();
 	}
 
+	@Override
+	public int getHandle() {
+		return handle;
+	}
+
 	@Override
 	public Value getLatestValue() throws InvalidValueException {
-		return decodeRecord(channel.getLatestRecord(), 
-							channel.getValueType());
+		Value value = registry.getLatestValue(handle);
+		if (value != null) {
+			return value;
+		}
+		return decodeRecord(channel.getLatestRecord());
 	}
 
 	@Override
@@ -80,39 +111,86 @@ public class ChannelWrapper implements Channel, RecordListener {
 
 	@Override
 	public void registerValueListener(ValueListener listener) {
-		synchronized (listeners) {
-			if (listeners.size() == 0) {
-				channel.addListener(this);
-			}
-			if (!listeners.contains(listener)) {
-				listeners.add(listener);
-			}
+		if (dispatcher != null) {
+			listener = dispatcher.queue(this, listener);
 		}
+		listeners.add(listener);
+		updateListeners();
+		attach();
 	}
 
 	@Override
 	public void deregisterValueListener(ValueListener listener) {
-		synchronized (listeners) {
-			if (listeners.contains(listener)) {
-				listeners.remove(listener);
-			}
-			if (listeners.size() == 0) {
-				channel.removeListener(this);
-			}
-		}
+		listeners.remove(listener);
+		updateListeners();
 	}
 
 	@Override
 	public void deregisterValueListeners() {
-		synchronized (listeners) {
-			listeners.clear();
+		listeners.clear();
+		updateListeners();
+	}
+
+	private synchronized void updateListeners() {
+		snapshot = new Listeners(listeners.get());
+	}
+
+	/**
+	 * Attaches the wrapper as record listener to the OpenMUC channel, to decode and store its records. 
+	 * Channels will only be attached once a listener was registered or they were read in bulk, 
+	 * so records of channels nothing listens to will not be decoded.
+	 */
+	void attach() {
+		if (attached) {
+			return;
+		}
+		synchronized (this) {
+			if (!attached) {
+				attached = true;
+				channel.addListener(this);
+			}
+		}
+	}
+
+	synchronized void detach() {
+		if (attached) {
+			attached = false;
 			channel.removeListener(this);
 		}
 	}
 
+	/**
+	 * Immutable snapshot of the registered listeners, holding whether any of them needs 
+	 * {@link Event}s to be allocated, so both will always be read consistently.
+	 */
+	private static final class Listeners {
+
+		private static final Listeners EMPTY = new Listeners(new ValueListener[0]);
+
+		private final ValueListener[] listeners;
+
+		private final boolean events;
+
+		private Listeners(ValueListener[] listeners) {
+			boolean events = false;
+			for (ValueListener listener : listeners) {
+				if (EventDispatcher.isEventListener(listener)) {
+					events = true;
+					break;
+				}
+			}
+			this.listeners = listeners;
+			this.events = events;
+		}
+	}
+
 	@Override
 	public void setLatestValue(Value value) {
 		channel.setLatestRecord(encodeRecord(value));
+		if (attached) {
+			// Values of detached channels would not be updated by following records
+			registry.setLatestValue(handle, value);
+		}
 	}
 
 	@Override
@@ -121,46 +199,147 @@ public class ChannelWrapper implements Channel, RecordListener {
 			channel.write(encodeValue(value));
 		}
 		else {
-			channel.writeFuture(encodeFutureValueList(new ValueList(value)));
+			writeFuture(new ValueList(value));
 		}
 	}
 
 	@Override
 	public void write(ValueList values) {
-		ListIterator<Value> iter = values.sort().listIterator();
-		while(iter.hasNext()) {
-			Value value = iter.next();
-			if(value.getEpochMillis() <= System.currentTimeMillis()) {
-				iter.remove();
-				
-				channel.write(encodeValue(value));
+		ValueList[] split = ValueSeries.of(values).split(System.currentTimeMillis());
+		for (Value value : split[0]) {
+			channel.write(encodeValue(value));
+		}
+		writeFuture(split[1]);
+	}
+
+	String getDeviceId() {
+		return channel.getDeviceId();
+	}
+
+	WriteValueContainer newWriteContainer(Value value) {
+		WriteValueContainer container = channel.getWriteContainer();
+		container.setValue(encodeValue(value));
+		return container;
+	}
+
+	/**
+	 * Submit future values, replacing the horizon of values submitted before. 
+	 * Consecutive identical values will be collapsed and the submission will be skipped, 
+	 * if the collapsed values equal the still pending values submitted last.
+	 */
+	synchronized void writeFuture(ValueList values) {
+		ValueSeries futureValues = collapseValues(values);
+		ValueList pendingValues = this.futureValues.tailSet(System.currentTimeMillis(), false);
+		if (futureValues.equals(pendingValues)) {
+			return;
+		}
+		channel.writeFuture(encodeFutureValueList(futureValues));
+		this.futureValues = futureValues;
+	}
+
+	private static ValueSeries collapseValues(ValueList values) {
+		ValueSeries collapsed = new ValueSeries();
+		Value last = null;
+		for (int i = 0; i < values.size(); i++) {
+			Value value = values.get(i);
+			if (last != null && isSameValue(last, value)) {
+				continue;
 			}
+			collapsed.add(value);
+			last = value;
+		}
+		return collapsed;
+	}
+
+	private static boolean isSameValue(Value value, Value other) {
+		if (value.getType() != other.getType()) {
+			return false;
+		}
+		switch(value.getType()) {
+		case BOOLEAN:
+			return value.booleanValue() == other.booleanValue();
+		case STRING:
+			return value.stringValue().equals(other.stringValue());
+		default:
+			return Double.compare(value.doubleValue(), other.doubleValue()) == 0;
 		}
-		channel.writeFuture(encodeFutureValueList(values));
 	}
 
 	@Override
 	public void newRecord(Record record) {
+		RecordDiagnostic diagnostic = RecordDiagnostic.validate(record);
+		if (diagnostic != null) {
+			newInvalidRecord(diagnostic, diagnostic.message);
+			return;
+		}
 		try {
-			Value newValue = decodeRecord(record, channel.getValueType());
-			newValueEvent(newValue, EventType.RECEIVED);
-			if (hasValueChanged(newValue)) {
-				newValueEvent(newValue, EventType.CHANGED);
-			}
+			Value newValue = decodeValue(record.getValue(), record.getTimestamp());
+			boolean changed = hasValueChanged(newValue);
+			boolean updated = hasValueUpdated(newValue, changed);
 			lastValue = newValue;
+			lastDiagnostic = null;
+			registry.setLatestValue(handle, newValue);
+			
+			newValueEvents(newValue, changed, updated);
 			
 		} catch (InvalidValueException e) {
-			switch (e.getSeverity()) {
-			case ERROR:
-				newErrorEvent(e.getMessage());
-			default:
-				break;
+			newInvalidRecord(null, e.getMessage());
+		}
+	}
+
+	/**
+	 * Handle an invalid record. Recurring diagnostics, e.g. of a channel flag that persists 
+	 * over several records, will only be reported once when the diagnostic changes.
+	 */
+	private void newInvalidRecord(RecordDiagnostic diagnostic, String message) {
+		registry.setLatestValue(handle, null);
+		
+		if (diagnostic != null) {
+			if (diagnostic == lastDiagnostic) {
+				return;
+			}
+			lastDiagnostic = diagnostic;
+			if (diagnostic.severity != ERROR) {
+				return;
 			}
 		}
+		newErrorEvent(message);
 	}
 
-	private void newValueEvent(Value value, EventType type) {
-		newEvent(new ValueEvent(this, value, type));
+	/**
+	 * Deliver a received value to all listeners in a single pass. 
+	 * {@link ValueEvent}s will only be allocated, if at least one listener overrides 
+	 * {@link ValueListener#onEvent(Event)}, and are shared between those listeners.
+	 */
+	private void newValueEvents(Value value, boolean changed, boolean updated) {
+		Listeners snapshot = this.snapshot;
+		ValueListener[] listeners = snapshot.listeners;
+		if (!snapshot.events) {
+			for (int i = 0; i < listeners.length; i++) {
+				ValueListener listener = listeners[i];
+				listener.onValueReceived(value);
+				if (changed) {
+					listener.onValueChanged(value);
+				}
+				if (updated) {
+					listener.onValueUpdated(value);
+				}
+			}
+			return;
+		}
+		ValueEvent receivedEvent = new ValueEvent(this, value, EventType.RECEIVED);
+		ValueEvent changedEvent = changed ? new ValueEvent(this, value, EventType.CHANGED) : null;
+		ValueEvent updatedEvent = updated ? new ValueEvent(this, value, EventType.UPDATED) : null;
+		for (int i = 0; i < listeners.length; i++) {
+			ValueListener listener = listeners[i];
+			EventDispatcher.deliver(listener, receivedEvent);
+			if (changed) {
+				EventDispatcher.deliver(listener, changedEvent);
+			}
+			if (updated) {
+				EventDispatcher.deliver(listener, updatedEvent);
+			}
+		}
 	}
 
 	private void newErrorEvent(String message) {
@@ -168,20 +347,9 @@ public class ChannelWrapper implements Channel, RecordListener {
 	}
 
 	private void newEvent(Event event) {
-		for (ValueListener valueListener : listeners) {
-			valueListener.onEvent(event);
-			
-			switch (event.getType()) {
-			case RECEIVED:
-				valueListener.onValueReceived(((ValueEvent) event).getValue());
-				break;
-			case CHANGED:
-				valueListener.onValueChanged(((ValueEvent) event).getValue());
-				break;
-			case ERROR:
-				valueListener.onError(((ErrorEvent) event).getError());
-				break;
-			}
+		ValueListener[] listeners = snapshot.listeners;
+		for (int i = 0; i < listeners.length; i++) {
+			EventDispatcher.deliver(listeners[i], event);
 		}
 	}
 
@@ -210,42 +378,46 @@ public class ChannelWrapper implements Channel, RecordListener {
 		}
 	}
 
-	private Value decodeRecord(org.openmuc.framework.data.Record record, org.openmuc.framework.data.ValueType type) 
-			throws InvalidValueException {
-		
-		if (record == null) {
-			throw new InvalidValueException(this, ERROR, "Record is null");
-		}
-		if (Flag.VALID != record.getFlag()) {
-			Flag flag = record.getFlag();
-			String message = record.getFlag().toString();
-			message = message.toLowerCase().replaceAll("_", " ");
-			message = message.substring(0, 1).toUpperCase() + message.substring(1);
-			
-			switch(flag) {
-			case VALID:
-				break;
-			case DISABLED:
-			case DRIVER_UNAVAILABLE:
-			case NO_VALUE_RECEIVED_YET:
-			case SAMPLING_AND_LISTENING_DISABLED:
-				throw new InvalidValueException(this, INFO, message);
-			case CONNECTING:
-			case DISCONNECTING:
-			case WAITING_FOR_CONNECTION_RETRY:
-				throw new InvalidValueException(this, WARNING, message);
-			default:
-				throw new InvalidValueException(this, ERROR, message);
-			}
+	private boolean hasValueUpdated(Value newValue, boolean changed) {
+		if (!filter.isEnabled()) {
+			// Channels without configured filter pass every received value on as update
+			return true;
 		}
-		org.openmuc.framework.data.Value value = record.getValue();
-		if (value == null) {
-			throw new InvalidValueException(this, ERROR, "Value is null");
+		switch(channel.getValueType()) {
+		case BYTE:
+		case SHORT:
+		case INTEGER:
+		case LONG:
+		case FLOAT:
+		case DOUBLE:
+			return filter.update(newValue.getEpochMillis(), newValue.doubleValue());
+		case BOOLEAN:
+		case STRING:
+		default:
+			return filter.update(newValue.getEpochMillis(), changed);
 		}
-		
-		Long time = record.getTimestamp();
+	}
+
+	private Value decodeRecord(org.openmuc.framework.data.Record record) throws InvalidValueException {
+		RecordDiagnostic diagnostic = RecordDiagnostic.validate(record);
+		if (diagnostic != null) {
+			throw getException(diagnostic);
+		}
+		return decodeValue(record.getValue(), record.getTimestamp());
+	}
+
+	private InvalidValueException getException(RecordDiagnostic diagnostic) {
+		InvalidValueException exception = exceptions[diagnostic.index];
+		if (exception == null) {
+			exception = new InvalidValueException(this, diagnostic.severity, diagnostic.message, false);
+			exceptions[diagnostic.index] = exception;
+		}
+		return exception;
+	}
+
+	private Value decodeValue(org.openmuc.framework.data.Value value, long time) throws InvalidValueException {
 		try {
-			switch(type) {
+			switch(channel.getValueType()) {
 			case BOOLEAN:
 				return new BooleanValue(value.asBoolean(), time);
 			case BYTE:
@@ -331,12 +503,12 @@ public class ChannelWrapper implements Channel, RecordListener {
 			return false;
 		}
 		ChannelWrapper user = (ChannelWrapper) o;
-		return Objects.equals(channel.getId(), user.channel.getId());
+		return registry == user.registry && handle == user.handle;
 	}
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(channel.getId());
+		return handle;
 	}
 
 }
@@ -19,10 +19,28 @@
  */
 package org.openmuc.framework.app.the.ems;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
+import org.openmuc.framework.config.ConfigChangeListener;
+import org.openmuc.framework.config.ConfigService;
+import org.openmuc.framework.data.Flag;
 import org.openmuc.framework.dataaccess.DataAccessService;
+import org.openmuc.framework.dataaccess.WriteValueContainer;
 import org.osgi.service.component.ComponentContext;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
@@ -36,29 +54,86 @@ import org.the.ems.core.data.Channel;
 import org.the.ems.core.data.InvalidValueException;
 import org.the.ems.core.data.UnknownChannelException;
 import org.the.ems.core.data.Value;
+import org.the.ems.core.data.ValueFilter;
 import org.the.ems.core.data.ValueList;
 import org.the.ems.core.data.ValueListener;
+import org.the.ems.core.data.ValueSeries;
+import org.the.ems.core.data.WriteContainer;
+import org.the.ems.core.data.WriteException;
+import org.the.ems.core.data.WriteStatistics;
 
 @Component(
 	immediate = true,
 	service = ContentManagementService.class
 )
-public class ContentManager implements ContentManagementService {
+public class ContentManager implements ContentManagementService, ConfigChangeListener {
 	private final static Logger logger = LoggerFactory.getLogger(ContentManager.class);
 
-	private final Map<String, ChannelWrapper> channels = new HashMap<String, ChannelWrapper>();
+	private final static String DISPATCH_THREADS = System.getProperty("org.the.ems.cms.dispatch.threads", "0");
+	private final static String DISPATCH_CAPACITY = System.getProperty("org.the.ems.cms.dispatch.capacity", "100");
+	private final static String DISPATCH_POLICY = System.getProperty("org.the.ems.cms.dispatch.policy", 
+			OverflowPolicy.COALESCE.name());
+
+	private ExecutorService executor = null;
+
+	private ChannelRegistry channels = new ChannelRegistry();
+
+	private volatile Set<String> ids = Collections.emptySet();
+
+	private final AtomicReference<WriteStatistics> statistics = 
+			new AtomicReference<WriteStatistics>(new WriteStatistics());
 
 	@Reference
 	private DataAccessService access;
 
+	@Reference
+	private ConfigService config;
+
 	@Activate
 	protected void activate(ComponentContext context) {
 		logger.info("Activating TH-E Content Management System");
+		config.getConfig(this);
+		configurationChanged();
+		
+		try {
+			int threads = Integer.parseInt(DISPATCH_THREADS);
+			if (threads > 0) {
+				executor = Executors.newFixedThreadPool(threads, new DispatchThreadFactory());
+				EventDispatcher dispatcher = new EventDispatcher(executor, 
+						OverflowPolicy.valueOf(DISPATCH_POLICY.toUpperCase()), 
+						Integer.parseInt(DISPATCH_CAPACITY));
+				
+				logger.info("Dispatching channel events asynchronously with {} threads, a queue capacity of {} and {} policy",
+						threads, dispatcher.getCapacity(), dispatcher.getPolicy());
+				
+				channels = new ChannelRegistry(dispatcher);
+			}
+		} catch (IllegalArgumentException e) {
+			logger.warn("Invalid event dispatch configuration, dispatching synchronously: {}", e.getMessage());
+		}
 	}
 
 	@Deactivate
 	protected void deactivate(ComponentContext context) {
 		logger.info("Deactivating TH-E Content Management System");
+		config.stopListeningForConfigChange(this);
+		channels.clear();
+		if (executor != null) {
+			executor.shutdown();
+			executor = null;
+		}
+	}
+
+	private static class DispatchThreadFactory implements ThreadFactory {
+
+		private final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "TH-E EMS CMS dispatcher " + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
 	}
 
 	@Override
@@ -66,16 +141,132 @@ public class ContentManager implements ContentManagementService {
 		if (id == null) {
 			throw new NullPointerException();
 		}
-		if (!channels.containsKey(id)) {
-			if (!access.getAllIds().contains(id)) {
+		ChannelWrapper channel = channels.get(id);
+		if (channel == null) {
+			if (!ids.contains(id)) {
 				throw new UnknownChannelException("Unknown channel for id: " + id);
 			}
-			ChannelWrapper channel = new ChannelWrapper(access.getChannel(id));
-			channels.put(id, channel);
+			channel = register(id);
+		}
+		return channel;
+	}
+
+	@Override
+	public void preload(Collection<String> ids) {
+		Set<String> channelIds = this.ids;
+		int count = 0;
+		for (String id : ids) {
+			if (id == null || !channelIds.contains(id) || channels.get(id) != null) {
+				continue;
+			}
+			register(id);
+			count++;
+		}
+		if (count > 0) {
+			logger.debug("Preloaded {} channels", count);
+		}
+	}
+
+	private ChannelWrapper register(String id) {
+		org.openmuc.framework.dataaccess.Channel channelAccess = access.getChannel(id);
+		return channels.register(channelAccess, newValueFilter(channelAccess));
+	}
+
+	/**
+	 * Write all values of a container, grouped by the OpenMUC device of their channels. 
+	 * Values due at the moment will be written in rounds, with each round writing at most one 
+	 * value per channel in a single transaction per device. Future values will be scheduled 
+	 * per channel.
+	 */
+	@Override
+	public void write(WriteContainer container) throws EnergyManagementException {
+		if (container.isEmpty()) {
+			return;
+		}
+		logger.debug("Writing values for {} channels", container.size());
+		
+		long timestamp = System.currentTimeMillis();
+		List<ChannelWrapper> channels = new ArrayList<ChannelWrapper>(container.size());
+		List<ValueList> values = new ArrayList<ValueList>(container.size());
+		int rounds = 0;
+		for (Entry<Channel, ValueList> entry : container.entrySet()) {
+			ChannelWrapper channel = this.channels.get(entry.getKey().getHandle());
+			if (channel == null) {
+				entry.getKey().write(entry.getValue());
+				continue;
+			}
+			ValueList[] split = ValueSeries.of(entry.getValue()).split(timestamp);
+			channel.writeFuture(split[1]);
 			
-			return channel;
+			channels.add(channel);
+			values.add(split[0]);
+			rounds = Math.max(rounds, split[0].size());
+		}
+		List<String> errors = new LinkedList<String>();
+		for (int round = 0; round < rounds; round++) {
+			Map<String, List<WriteValueContainer>> devices = new LinkedHashMap<String, List<WriteValueContainer>>();
+			for (int i = 0; i < channels.size(); i++) {
+				if (round >= values.get(i).size()) {
+					continue;
+				}
+				ChannelWrapper channel = channels.get(i);
+				devices.computeIfAbsent(channel.getDeviceId(), d -> new ArrayList<WriteValueContainer>())
+						.add(channel.newWriteContainer(values.get(i).get(round)));
+			}
+			for (Entry<String, List<WriteValueContainer>> device : devices.entrySet()) {
+				write(device.getKey(), device.getValue(), errors);
+			}
+		}
+		if (!errors.isEmpty()) {
+			throw new WriteException("Error writing values: " + String.join(", ", errors));
+		}
+	}
+
+	private void write(String device, List<WriteValueContainer> containers, List<String> errors) {
+		long start = System.nanoTime();
+		access.write(containers);
+		
+		long latency = System.nanoTime() - start;
+		statistics.updateAndGet(s -> s.update(containers.size(), latency));
+		if (logger.isDebugEnabled()) {
+			logger.debug("Wrote {} values to device \"{}\" in {}ms", containers.size(), device, 
+					String.format("%.2f", latency/1000000.0));
+		}
+		for (WriteValueContainer container : containers) {
+			Flag flag = container.getFlag();
+			if (flag != null && flag != Flag.VALID) {
+				errors.add(container.getChannel().getId() + " (" + flag + ")");
+			}
+		}
+	}
+
+	@Override
+	public WriteStatistics getWriteStatistics() {
+		return statistics.get();
+	}
+
+	@Override
+	public void configurationChanged() {
+		ids = Collections.unmodifiableSet(new HashSet<String>(access.getAllIds()));
+	}
+
+	@Override
+	public Channel getChannel(int handle) throws UnknownChannelException {
+		ChannelWrapper channel = channels.get(handle);
+		if (channel == null) {
+			throw new UnknownChannelException("Unknown channel for handle: " + handle);
+		}
+		return channel;
+	}
+
+	private ValueFilter newValueFilter(org.openmuc.framework.dataaccess.Channel channel) {
+		try {
+			return ValueFilter.parse(channel.getSettings());
+			
+		} catch (IllegalArgumentException e) {
+			logger.warn("Unable to parse value filter for channel \"{}\": {}", channel.getId(), e.getMessage());
+			return new ValueFilter();
 		}
-		return channels.get(id);
 	}
 
 	@Override
@@ -98,6 +289,64 @@ public class ContentManager implements ContentManagementService {
 		return getChannel(id).getLatestValue();
 	}
 
+	/**
+	 * Get the latest values of several channels as a consistent snapshot. All values already 
+	 * received are read at once from the {@link ChannelRegistry}. Only channels that did not 
+	 * receive any value yet will be decoded from their latest OpenMUC record afterwards.
+	 */
+	@Override
+	public Map<String, Value> getLatestValues(Collection<String> ids) throws UnknownChannelException {
+		List<String> channelIds = new ArrayList<String>(ids);
+		ChannelWrapper[] channels = new ChannelWrapper[channelIds.size()];
+		for (int i = 0; i < channels.length; i++) {
+			channels[i] = (ChannelWrapper) getChannel(channelIds.get(i));
+		}
+		Value[] snapshot = getLatestValues(channels);
+		
+		Map<String, Value> values = new LinkedHashMap<String, Value>();
+		for (int i = 0; i < snapshot.length; i++) {
+			if (snapshot[i] != null) {
+				values.put(channelIds.get(i), snapshot[i]);
+			}
+		}
+		return Collections.unmodifiableMap(values);
+	}
+
+	@Override
+	public List<Value> getLatestValues(int... handles) throws UnknownChannelException {
+		ChannelWrapper[] channels = new ChannelWrapper[handles.length];
+		for (int i = 0; i < handles.length; i++) {
+			channels[i] = (ChannelWrapper) getChannel(handles[i]);
+		}
+		return Collections.unmodifiableList(Arrays.asList(getLatestValues(channels)));
+	}
+
+	/**
+	 * Reads the latest values held by the channel registry as a consistent snapshot. Channels, that 
+	 * did not store any value yet, e.g. as they are read in bulk for the first time, will be read 
+	 * individually from their latest record afterwards, so their values are not part of the snapshot.
+	 */
+	private Value[] getLatestValues(ChannelWrapper[] channels) {
+		int[] handles = new int[channels.length];
+		for (int i = 0; i < channels.length; i++) {
+			handles[i] = channels[i].getHandle();
+			channels[i].attach();
+		}
+		Value[] values = this.channels.getLatestValues(handles);
+		for (int i = 0; i < values.length; i++) {
+			if (values[i] != null) {
+				continue;
+			}
+			try {
+				values[i] = channels[i].getLatestValue();
+				
+			} catch (InvalidValueException e) {
+				// Skip channels without a valid value
+			}
+		}
+		return values;
+	}
+
 	@Override
 	public void setLatestValue(String id, Value value) throws UnknownChannelException {
 		logger.debug("Set latest value for channel \"{}\": {}", id, value);
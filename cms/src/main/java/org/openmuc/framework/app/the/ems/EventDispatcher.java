@@ -0,0 +1,382 @@
+/* 
+ * Copyright 2016-2021 ISC Konstanz
+ * 
+ * This file is part of TH-E-EMS.
+ * For more information visit https://github.com/isc-konstanz/th-e-ems
+ * 
+ * TH-E-EMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * TH-E-EMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with TH-E-EMS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openmuc.framework.app.the.ems;
+
+import java.util.ArrayDeque;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.the.ems.core.data.Channel;
+import org.the.ems.core.data.Error;
+import org.the.ems.core.data.Value;
+import org.the.ems.core.data.ValueList;
+import org.the.ems.core.data.ValueListener;
+import org.the.ems.core.data.event.ErrorEvent;
+import org.the.ems.core.data.event.Event;
+import org.the.ems.core.data.event.EventListener;
+import org.the.ems.core.data.event.EventType;
+import org.the.ems.core.data.event.ValueEvent;
+
+/**
+ * Dispatches channel events asynchronously, to decouple listeners from the driver threads 
+ * the records were received by.
+ * <p>
+ * Every listener registered to a channel gets its own bounded queue, drained by at most one task 
+ * of the executor at a time, so events of a channel are delivered to a listener in the order they 
+ * were received. Listeners registered to several channels may be notified by several threads 
+ * concurrently and need to be thread-safe. 
+ * If a queue is full, the {@link OverflowPolicy} decides whether the receiving thread blocks, 
+ * the oldest queued event gets dropped, or a queued event of the same channel and type gets 
+ * replaced by the latest one, keeping its position in the queue.
+ * <p>
+ * Only events a listener implements a callback for will be queued. Consecutive values of the same 
+ * type, that queued up e.g. for a burst of records, will be delivered at once via 
+ * {@link ValueListener#onValuesReceived(ValueList)} or {@link ValueListener#onValuesUpdated(ValueList)}, 
+ * unless the listener overrides {@link ValueListener#onEvent(Event)}.
+ * <p>
+ * The {@link OverflowPolicy#BLOCK} policy may deadlock, if a listener triggers new events 
+ * from within the executor it is being dispatched by, while its own queue is full.
+ */
+public class EventDispatcher {
+	private final static Logger logger = LoggerFactory.getLogger(EventDispatcher.class);
+
+	private final Executor executor;
+
+	private final OverflowPolicy policy;
+
+	private final int capacity;
+
+	public EventDispatcher(Executor executor, OverflowPolicy policy, int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Queue capacity needs to be positive: " + capacity);
+		}
+		this.executor = executor;
+		this.policy = policy;
+		this.capacity = capacity;
+	}
+
+	public OverflowPolicy getPolicy() {
+		return policy;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Wrap a listener into a queue, dispatching all events it receives asynchronously. 
+	 * The returned listener is equal to the wrapped listener, so it may be deregistered with it.
+	 * 
+	 * @param source the channel the listener gets registered to
+	 * @param listener the listener to be notified asynchronously
+	 * 
+	 * @return the queued listener
+	 */
+	public ValueListener queue(Channel source, ValueListener listener) {
+		if (listener instanceof ListenerQueue) {
+			return listener;
+		}
+		return new ListenerQueue(source, listener);
+	}
+
+	/**
+	 * Cache whether listener classes override {@link ValueListener#onEvent(Event)}, 
+	 * as only those need {@link Event} objects to be allocated for them.
+	 */
+	private static final ClassValue<Boolean> EVENT_LISTENERS = new ClassValue<Boolean>() {
+		@Override
+		protected Boolean computeValue(Class<?> type) {
+			try {
+				return type.getMethod("onEvent", Event.class).getDeclaringClass() != EventListener.class;
+				
+			} catch (NoSuchMethodException | SecurityException e) {
+				return true;
+			}
+		}
+	};
+
+	static boolean isEventListener(ValueListener listener) {
+		return EVENT_LISTENERS.get(listener.getClass());
+	}
+
+	/**
+	 * Cache the event types listener classes implement a callback for, as other events do not 
+	 * need to be queued for them.
+	 */
+	private static final ClassValue<Set<EventType>> EVENT_TYPES = new ClassValue<Set<EventType>>() {
+		@Override
+		protected Set<EventType> computeValue(Class<?> type) {
+			if (EVENT_LISTENERS.get(type)) {
+				return EnumSet.allOf(EventType.class);
+			}
+			Set<EventType> types = EnumSet.noneOf(EventType.class);
+			if (isOverridden(type, "onValueReceived", Value.class) || 
+					isOverridden(type, "onValuesReceived", ValueList.class)) {
+				types.add(EventType.RECEIVED);
+			}
+			if (isOverridden(type, "onValueChanged", Value.class)) {
+				types.add(EventType.CHANGED);
+			}
+			if (isOverridden(type, "onValueUpdated", Value.class) || 
+					isOverridden(type, "onValuesUpdated", ValueList.class)) {
+				types.add(EventType.UPDATED);
+			}
+			if (isOverridden(type, "onError", Error.class)) {
+				types.add(EventType.ERROR);
+			}
+			return types;
+		}
+	};
+
+	private static boolean isOverridden(Class<?> type, String name, Class<?> parameter) {
+		try {
+			return type.getMethod(name, parameter).getDeclaringClass() != ValueListener.class;
+			
+		} catch (NoSuchMethodException | SecurityException e) {
+			return true;
+		}
+	}
+
+	static void deliver(ValueListener listener, Event event) {
+		listener.onEvent(event);
+		
+		switch (event.getType()) {
+		case RECEIVED:
+			listener.onValueReceived(((ValueEvent) event).getValue());
+			break;
+		case CHANGED:
+			listener.onValueChanged(((ValueEvent) event).getValue());
+			break;
+		case UPDATED:
+			listener.onValueUpdated(((ValueEvent) event).getValue());
+			break;
+		case ERROR:
+			listener.onError(((ErrorEvent) event).getError());
+			break;
+		}
+	}
+
+	static void deliver(ValueListener listener, EventType type, ValueList values) {
+		switch (type) {
+		case RECEIVED:
+			listener.onValuesReceived(values);
+			break;
+		case UPDATED:
+			listener.onValuesUpdated(values);
+			break;
+		default:
+			throw new IllegalArgumentException("Unable to deliver values as batch of type: " + type);
+		}
+	}
+
+	private class ListenerQueue implements ValueListener, Runnable {
+
+		private final Channel source;
+
+		private final ValueListener listener;
+
+		private final Set<EventType> types;
+
+		private final boolean batched;
+
+		private final ArrayDeque<Event> events = new ArrayDeque<Event>();
+
+		private boolean scheduled = false;
+
+		private long dropped = 0;
+
+		private ListenerQueue(Channel source, ValueListener listener) {
+			this.source = source;
+			this.listener = listener;
+			this.types = EVENT_TYPES.get(listener.getClass());
+			this.batched = !isEventListener(listener);
+		}
+
+		@Override
+		public void onValuesReceived(ValueList values) {
+			for (int i = 0; i < values.size(); i++) {
+				onEvent(new ValueEvent(source, values.get(i), EventType.RECEIVED));
+			}
+		}
+
+		@Override
+		public void onEvent(Event event) {
+			if (!types.contains(event.getType())) {
+				return;
+			}
+			synchronized (this) {
+				if (events.size() >= capacity) {
+					if (policy == OverflowPolicy.COALESCE && offerCoalesced(event)) {
+						// The replaced event is already queued to be delivered
+						return;
+					}
+					if (!offerOverflow(event)) {
+						return;
+					}
+				}
+				events.addLast(event);
+				if (scheduled) {
+					return;
+				}
+				scheduled = true;
+			}
+			schedule();
+		}
+
+		private boolean offerOverflow(Event event) {
+			switch (policy) {
+			case BLOCK:
+				try {
+					while (events.size() >= capacity) {
+						wait();
+					}
+					return true;
+					
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return false;
+				}
+			case COALESCE:
+			case DROP_OLDEST:
+			default:
+				return offerDropped();
+			}
+		}
+
+		private boolean offerCoalesced(Event event) {
+			int index = 0;
+			for (Event queued : events) {
+				if (queued.getSource() == event.getSource() && queued.getType() == event.getType()) {
+					break;
+				}
+				index++;
+			}
+			if (index >= events.size()) {
+				return false;
+			}
+			// Rotate the queue once, to replace the queued event in place
+			for (int i = 0, size = events.size(); i < size; i++) {
+				Event queued = events.pollFirst();
+				events.addLast(i == index ? event : queued);
+			}
+			return true;
+		}
+
+		private boolean offerDropped() {
+			events.pollFirst();
+			if (dropped++ % capacity == 0) {
+				logger.debug("Dropped {} events for slow listener: {}", dropped, listener);
+			}
+			return true;
+		}
+
+		private void schedule() {
+			try {
+				executor.execute(this);
+				
+			} catch (RejectedExecutionException e) {
+				synchronized (this) {
+					events.clear();
+					scheduled = false;
+					notifyAll();
+				}
+				logger.warn("Unable to dispatch events to listener: {}", e.getMessage());
+			}
+		}
+
+		@Override
+		public void run() {
+			int count = 0;
+			while (count < capacity) {
+				Event event;
+				ValueList values = null;
+				synchronized (this) {
+					event = events.pollFirst();
+					if (event == null) {
+						scheduled = false;
+						return;
+					}
+					count++;
+					if (batched && isBatchable(event)) {
+						// Collect consecutive values of the same type, to deliver them at once
+						Event next = events.peekFirst();
+						while (count < capacity && next != null && 
+								next.getSource() == event.getSource() && next.getType() == event.getType()) {
+							if (values == null) {
+								values = new ValueList();
+								values.add(((ValueEvent) event).getValue());
+							}
+							values.add(((ValueEvent) events.pollFirst()).getValue());
+							next = events.peekFirst();
+							count++;
+						}
+					}
+					notifyAll();
+				}
+				try {
+					if (values != null) {
+						deliver(listener, event.getType(), values);
+					}
+					else {
+						deliver(listener, event);
+					}
+				} catch (RuntimeException e) {
+					logger.warn("Error notifying listener of event: {}", e.getMessage());
+					
+				} catch (java.lang.Error e) {
+					// Hand the remaining events over to a new task, as the error may terminate this thread
+					logger.warn("Error notifying listener of event: {}", e.toString());
+					schedule();
+					throw e;
+				}
+			}
+			// Reschedule after a full batch, to not starve other listeners of the executor
+			schedule();
+		}
+
+		private boolean isBatchable(Event event) {
+			return event.getType() == EventType.RECEIVED || event.getType() == EventType.UPDATED;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (o == this) return true;
+			if (o instanceof ListenerQueue) {
+				return listener.equals(((ListenerQueue) o).listener);
+			}
+			return listener.equals(o);
+		}
+
+		@Override
+		public int hashCode() {
+			return listener.hashCode();
+		}
+
+		@Override
+		public String toString() {
+			return listener.toString();
+		}
+	}
+
+}
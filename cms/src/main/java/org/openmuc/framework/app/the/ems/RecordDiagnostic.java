@@ -0,0 +1,101 @@
+/* 
+ * Copyright 2016-2021 ISC Konstanz
+ * 
+ * This file is part of TH-E-EMS.
+ * For more information visit https://github.com/isc-konstanz/th-e-ems
+ * 
+ * TH-E-EMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * TH-E-EMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with TH-E-EMS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openmuc.framework.app.the.ems;
+
+import static org.the.ems.core.data.InvalidValueException.Severity.ERROR;
+import static org.the.ems.core.data.InvalidValueException.Severity.INFO;
+import static org.the.ems.core.data.InvalidValueException.Severity.WARNING;
+
+import org.openmuc.framework.data.Flag;
+import org.openmuc.framework.data.Record;
+import org.the.ems.core.data.InvalidValueException.Severity;
+
+/**
+ * Precomputed diagnostic of an invalid {@link Record}, holding the message and severity for 
+ * each OpenMUC {@link Flag}, so invalid records can be validated without any allocations.
+ */
+final class RecordDiagnostic {
+
+	private static final RecordDiagnostic[] FLAGS = new RecordDiagnostic[Flag.values().length];
+
+	static final RecordDiagnostic RECORD_NULL = new RecordDiagnostic(FLAGS.length, ERROR, "Record is null");
+	static final RecordDiagnostic VALUE_NULL = new RecordDiagnostic(FLAGS.length + 1, ERROR, "Value is null");
+
+	static final int SIZE = FLAGS.length + 2;
+
+	static {
+		for (Flag flag : Flag.values()) {
+			String message = flag.toString().toLowerCase().replace('_', ' ');
+			message = message.substring(0, 1).toUpperCase() + message.substring(1);
+			
+			FLAGS[flag.ordinal()] = new RecordDiagnostic(flag.ordinal(), getSeverity(flag), message);
+		}
+	}
+
+	final int index;
+
+	final Severity severity;
+
+	final String message;
+
+	private RecordDiagnostic(int index, Severity severity, String message) {
+		this.index = index;
+		this.severity = severity;
+		this.message = message;
+	}
+
+	private static Severity getSeverity(Flag flag) {
+		switch(flag) {
+		case DISABLED:
+		case DRIVER_UNAVAILABLE:
+		case NO_VALUE_RECEIVED_YET:
+		case SAMPLING_AND_LISTENING_DISABLED:
+			return INFO;
+		case CONNECTING:
+		case DISCONNECTING:
+		case WAITING_FOR_CONNECTION_RETRY:
+			return WARNING;
+		default:
+			return ERROR;
+		}
+	}
+
+	/**
+	 * Validate a record.
+	 * 
+	 * @param record the record to validate
+	 * 
+	 * @return the diagnostic of the invalid record, or null if the record is valid
+	 */
+	static RecordDiagnostic validate(Record record) {
+		if (record == null) {
+			return RECORD_NULL;
+		}
+		Flag flag = record.getFlag();
+		if (Flag.VALID != flag) {
+			return FLAGS[flag.ordinal()];
+		}
+		if (record.getValue() == null) {
+			return VALUE_NULL;
+		}
+		return null;
+	}
+
+}
@@ -0,0 +1,182 @@
+/* 
+ * Copyright 2016-2021 ISC Konstanz
+ * 
+ * This file is part of TH-E-EMS.
+ * For more information visit https://github.com/isc-konstanz/th-e-ems
+ * 
+ * TH-E-EMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * TH-E-EMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with TH-E-EMS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openmuc.framework.app.the.ems;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+
+import org.junit.Test;
+import org.the.ems.core.data.Channel;
+import org.the.ems.core.data.DoubleValue;
+import org.the.ems.core.data.Value;
+import org.the.ems.core.data.ValueListener;
+import org.the.ems.core.data.event.EventType;
+import org.the.ems.core.data.event.ValueEvent;
+
+public class TestEventDispatcher {
+
+	private final Channel channel = newChannel();
+
+	private final TestExecutor executor = new TestExecutor();
+
+	private final TestListener listener = new TestListener();
+
+	@Test
+	public void testDropOldest() {
+		ValueListener queue = new EventDispatcher(executor, OverflowPolicy.DROP_OLDEST, 2).queue(channel, listener);
+		queue.onEvent(newEvent(channel, 1, EventType.RECEIVED));
+		queue.onEvent(newEvent(channel, 2, EventType.CHANGED));
+		queue.onEvent(newEvent(channel, 3, EventType.RECEIVED));
+		executor.runAll();
+		
+		assertEquals(Arrays.asList("CHANGED 2.0", "RECEIVED 3.0"), listener.events);
+	}
+
+	@Test
+	public void testCoalesce() {
+		ValueListener queue = new EventDispatcher(executor, OverflowPolicy.COALESCE, 3).queue(channel, listener);
+		queue.onEvent(newEvent(channel, 1, EventType.RECEIVED));
+		queue.onEvent(newEvent(channel, 2, EventType.CHANGED));
+		queue.onEvent(newEvent(channel, 3, EventType.UPDATED));
+		queue.onEvent(newEvent(channel, 4, EventType.RECEIVED));
+		queue.onEvent(newEvent(channel, 5, EventType.UPDATED));
+		executor.runAll();
+		
+		assertEquals(Arrays.asList("RECEIVED 4.0", "CHANGED 2.0", "UPDATED 5.0"), listener.events);
+		
+		// Events of other channels are not coalesced, but drop the oldest event
+		listener.events.clear();
+		queue.onEvent(newEvent(channel, 6, EventType.RECEIVED));
+		queue.onEvent(newEvent(channel, 7, EventType.CHANGED));
+		queue.onEvent(newEvent(channel, 8, EventType.UPDATED));
+		queue.onEvent(newEvent(newChannel(), 9, EventType.RECEIVED));
+		executor.runAll();
+		
+		assertEquals(Arrays.asList("CHANGED 7.0", "UPDATED 8.0", "RECEIVED 9.0"), listener.events);
+	}
+
+	@Test
+	public void testBlock() throws Exception {
+		ValueListener queue = new EventDispatcher(executor, OverflowPolicy.BLOCK, 1).queue(channel, listener);
+		queue.onEvent(newEvent(channel, 1, EventType.RECEIVED));
+		
+		Thread producer = new Thread(() -> queue.onEvent(newEvent(channel, 2, EventType.RECEIVED)));
+		producer.start();
+		while (producer.getState() != Thread.State.WAITING) {
+			assertTrue(producer.isAlive());
+			Thread.sleep(1);
+		}
+		assertTrue(listener.events.isEmpty());
+		
+		executor.runAll();
+		producer.join();
+		executor.runAll();
+		
+		assertEquals(Arrays.asList("RECEIVED 1.0", "RECEIVED 2.0"), listener.events);
+	}
+
+	@Test
+	public void testListenerError() {
+		ValueListener failing = new TestListener() {
+			@Override
+			public void onValueChanged(Value value) {
+				throw new AssertionError();
+			}
+		};
+		ValueListener queue = new EventDispatcher(executor, OverflowPolicy.BLOCK, 4).queue(channel, failing);
+		queue.onEvent(newEvent(channel, 1, EventType.CHANGED));
+		queue.onEvent(newEvent(channel, 2, EventType.RECEIVED));
+		try {
+			executor.tasks.poll().run();
+			
+		} catch (AssertionError e) {
+			// Expected to terminate the running task
+		}
+		executor.runAll();
+		
+		assertEquals(Arrays.asList("RECEIVED 2.0"), ((TestListener) failing).events);
+	}
+
+	private static ValueEvent newEvent(Channel channel, double value, EventType type) {
+		return new ValueEvent(channel, new DoubleValue(value), type);
+	}
+
+	private static Channel newChannel() {
+		return (Channel) Proxy.newProxyInstance(Channel.class.getClassLoader(), 
+				new Class<?>[] { Channel.class }, (proxy, method, args) -> {
+					if (method.getName().equals("equals")) {
+						return proxy == args[0];
+					}
+					if (method.getName().equals("hashCode")) {
+						return System.identityHashCode(proxy);
+					}
+					return null;
+				});
+	}
+
+	private static class TestExecutor implements Executor {
+
+		private final ArrayDeque<Runnable> tasks = new ArrayDeque<Runnable>();
+
+		@Override
+		public synchronized void execute(Runnable task) {
+			tasks.add(task);
+		}
+
+		private void runAll() {
+			Runnable task;
+			while ((task = poll()) != null) {
+				task.run();
+			}
+		}
+
+		private synchronized Runnable poll() {
+			return tasks.poll();
+		}
+	}
+
+	private static class TestListener implements ValueListener {
+
+		private final List<String> events = new CopyOnWriteArrayList<String>();
+
+		@Override
+		public void onValueReceived(Value value) {
+			events.add(EventType.RECEIVED + " " + value.doubleValue());
+		}
+
+		@Override
+		public void onValueChanged(Value value) {
+			events.add(EventType.CHANGED + " " + value.doubleValue());
+		}
+
+		@Override
+		public void onValueUpdated(Value value) {
+			events.add(EventType.UPDATED + " " + value.doubleValue());
+		}
+	}
+
+}
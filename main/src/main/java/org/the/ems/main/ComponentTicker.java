@@ -0,0 +1,230 @@
+/* 
+ * Copyright 2016-2021 ISC Konstanz
+ * 
+ * This file is part of TH-E-EMS.
+ * For more information visit https://github.com/isc-konstanz/th-e-ems
+ * 
+ * TH-E-EMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * TH-E-EMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with TH-E-EMS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.the.ems.main;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.the.ems.core.Component;
+import org.the.ems.core.EnergyManagementException;
+
+/**
+ * Ticks all registered components once per cycle, either serially on the calling thread or 
+ * fanned out to a bounded pool of worker threads. Each tick is joined before the cycle returns, 
+ * unless it exceeds its deadline, measured from the moment the tick started running. 
+ * Overrunning components will be reported and skipped in following cycles, until their pending 
+ * tick has finished. Ticks still queued behind others at the end of the cycle interval will be 
+ * deferred to run whenever a worker thread becomes available, without counting as overrun.
+ */
+final class ComponentTicker {
+	private final static Logger logger = LoggerFactory.getLogger(ComponentTicker.class);
+
+	private final static String TICK_THREADS = System.getProperty("org.the.ems.tick.threads", 
+			String.valueOf(Runtime.getRuntime().availableProcessors()));
+	private final static String TICK_DEADLINE = System.getProperty("org.the.ems.tick.deadline", "0");
+
+	@FunctionalInterface
+	interface Tick {
+
+		void run(Component component) throws EnergyManagementException;
+
+	}
+
+	private final ExecutorService executor;
+
+	private final Map<String, Task> pending = new ConcurrentHashMap<String, Task>();
+
+	private final long deadline;
+
+	private ComponentTicker(int threads, long deadline) {
+		this.executor = threads > 1 ? Executors.newFixedThreadPool(threads, new TickThreadFactory()) : null;
+		this.deadline = deadline;
+	}
+
+	static ComponentTicker create() {
+		int threads;
+		long deadline;
+		try {
+			threads = Integer.parseInt(TICK_THREADS);
+			deadline = Long.parseLong(TICK_DEADLINE);
+			
+		} catch (NumberFormatException e) {
+			logger.warn("Invalid tick configuration, falling back to serial mode: {}", e.getMessage());
+			threads = 1;
+			deadline = 0;
+		}
+		if (threads > 1) {
+			logger.info("Ticking TH-E EMS components on {} threads", threads);
+		}
+		return new ComponentTicker(threads, deadline);
+	}
+
+	boolean isSerial() {
+		return executor == null;
+	}
+
+	/**
+	 * Ticks all passed components and returns once every tick finished or exceeded its deadline. 
+	 * Ticks that did not start within the cycle interval will not be waited for.
+	 * 
+	 * @param components the components to tick
+	 * @param interval the cycle interval in milliseconds, used as deadline if none was configured
+	 * @param tick the action to run for every component
+	 */
+	void tick(Collection<Component> components, long interval, Tick tick) {
+		long deadline = this.deadline > 0 ? this.deadline : interval;
+		if (isSerial()) {
+			for (Component component : components) {
+				long timestamp = System.currentTimeMillis();
+				run(component, tick);
+				
+				long time = System.currentTimeMillis() - timestamp;
+				if (time > deadline) {
+					logger.warn("Component \"{}\" overran its tick deadline of {}ms by {}ms", 
+							component.getId(), deadline, time - deadline);
+				}
+			}
+			return;
+		}
+		List<Task> tasks = new ArrayList<Task>(components.size());
+		for (Component component : components) {
+			Task task = pending.get(component.getId());
+			if (task != null) {
+				if (!task.future.isDone()) {
+					logger.debug("Skipping tick of component \"{}\", as its last tick is still pending", 
+							component.getId());
+					continue;
+				}
+				pending.remove(component.getId());
+			}
+			task = new Task(component, tick);
+			task.future = executor.submit(task);
+			tasks.add(task);
+		}
+		boolean interrupted = false;
+		long end = System.currentTimeMillis() + interval;
+		for (Task task : tasks) {
+			String id = task.component.getId();
+			while (true) {
+				long started = task.started;
+				long timeout = (started > 0 ? started + deadline : end) - System.currentTimeMillis();
+				try {
+					if (timeout <= 0) {
+						throw new TimeoutException();
+					}
+					task.future.get(timeout, TimeUnit.MILLISECONDS);
+					break;
+					
+				} catch (InterruptedException e) {
+					// Interrupts signal events to the manager and will be restored after the cycle joined
+					interrupted = true;
+					
+				} catch (ExecutionException e) {
+					logger.warn("Unexpected error while ticking component \"{}\": ", id, e.getCause());
+					break;
+					
+				} catch (TimeoutException e) {
+					if (task.started != started) {
+						// The tick started while waiting and gets its own deadline
+						continue;
+					}
+					if (started > 0) {
+						logger.warn("Component \"{}\" overran its tick deadline of {}ms", id, deadline);
+					}
+					else {
+						logger.debug("Deferring tick of component \"{}\", as no worker was available in time", id);
+					}
+					pending.put(id, task);
+					break;
+				}
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Tick of a single component, recording the time it started running on a worker thread.
+	 */
+	private static class Task implements Runnable {
+
+		private final Component component;
+
+		private final Tick tick;
+
+		private volatile long started = 0;
+
+		private Future<?> future;
+
+		private Task(Component component, Tick tick) {
+			this.component = component;
+			this.tick = tick;
+		}
+
+		@Override
+		public void run() {
+			started = System.currentTimeMillis();
+			ComponentTicker.run(component, tick);
+		}
+	}
+
+	private static void run(Component component, Tick tick) {
+		try {
+			tick.run(component);
+			
+		} catch (EnergyManagementException e) {
+			logger.warn("Error while handling event for component \"{}\": ", component.getId(), e);
+		}
+	}
+
+	void shutdown() {
+		if (executor != null) {
+			executor.shutdownNow();
+		}
+		pending.clear();
+	}
+
+	private static class TickThreadFactory implements ThreadFactory {
+
+		private final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "TH-E EMS tick " + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+
+}
@@ -24,6 +24,7 @@ import java.lang.reflect.Method;
 import java.text.MessageFormat;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import org.apache.felix.service.command.CommandProcessor;
@@ -82,11 +83,30 @@ public final class EnergyManager extends Configurable
 	public final static String ID = "ems";
 	public final static String PID = "org.the.ems.core";
 
+	private final static Method INTERRUPT;
+	static {
+		try {
+			INTERRUPT = Component.class.getDeclaredMethod("interrupt");
+			INTERRUPT.setAccessible(true);
+			
+		} catch (NoSuchMethodException | SecurityException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
 	private final ComponentCollection components = new ComponentCollection();
 
+	private final ComponentTicker ticker = ComponentTicker.create();
+
 	private ControlSchedule scheduleUpdate = null;
 	private ControlSchedule schedule = new ControlSchedule();
 
+	/**
+	 * Timestamps of the last schedule delivered to each component, as components skipped by the ticker 
+	 * will only receive a new schedule with their next executed tick.
+	 */
+	private final Map<String, Long> scheduled = new ConcurrentHashMap<String, Long>();
+
 	private Thread manager = null;
 
 	@Configuration(mandatory = false)
@@ -99,13 +119,13 @@ public final class EnergyManager extends Configurable
 	ConfigurableContext context;
 
 	@Reference
-	ConfigurationService configs;
+	ConfigurationService configs; // make sure configurations are loaded and watched
 
 	@Activate
 	protected final void activate(Map<String, ?> properties) {
 		logger.info("Activating TH-E Energy Management System");
 		try {
-			configure(Configurations.create(properties));
+			configure(Configurations.snapshot(properties));
 			
 			manager = new Thread(this);
 			manager.setName("TH-E EMS");
@@ -119,7 +139,7 @@ public final class EnergyManager extends Configurable
 	@Modified
 	protected final void modified(Map<String, ?> properties) {
 		try {
-			configure(Configurations.create(properties));
+			configure(Configurations.snapshot(properties));
 			manager.interrupt();
 			
 		} catch (ConfigurationException e) {
@@ -138,6 +158,7 @@ public final class EnergyManager extends Configurable
 			
 		} catch (InterruptedException e) {
 		}
+		ticker.shutdown();
 	}
 
 	@Reference(
@@ -320,6 +341,7 @@ public final class EnergyManager extends Configurable
 				logger.debug(msg);
 			}
 			components.remove(id);
+			scheduled.remove(id);
 		}
 	}
 
@@ -362,8 +384,6 @@ public final class EnergyManager extends Configurable
 			try {
 				long timestamp = System.currentTimeMillis();
 				
-				configs.watch();
-				
 				handleComponentEvent();
 				
 				long time = System.currentTimeMillis() - timestamp;
@@ -389,37 +409,36 @@ public final class EnergyManager extends Configurable
 	private void handleComponentEvent() {
 		// TODO: implement channel flag checks, component and optimization verifications
 		
-		boolean scheduleFlag = false;
 		if (scheduleUpdate != null && scheduleUpdate.getTimestamp() > schedule.getTimestamp()) {
 			// TODO: verify schedule integrity
-			scheduleFlag = true;
 			schedule = scheduleUpdate;
 		}
+		ControlSchedule schedule = this.schedule;
 		synchronized (components) {
-			for (Component component : components.values()) {
-				try {
-					if (maintenance) {
-						component.setStatus(ComponentStatus.MAINTENANCE);
+			ticker.tick(components.values(), interval, component -> {
+				if (maintenance) {
+					component.setStatus(ComponentStatus.MAINTENANCE);
+				}
+				else {
+					// TODO: check for other possible component states
+					if (component.getStatus() != ComponentStatus.ENABLED) {
+						component.setStatus(ComponentStatus.ENABLED);
 					}
-					else {
-						// TODO: check for other possible component states
-						if (component.getStatus() != ComponentStatus.ENABLED) {
-							component.setStatus(ComponentStatus.ENABLED);
-						}
-						if (component instanceof SchedulableService && scheduleFlag) {
-							handleComponentSchedule((SchedulableService) component);
-						}
+					if (component instanceof SchedulableService) {
+						handleComponentSchedule((SchedulableService) component, schedule);
 					}
-					handleComponentInterrupt(component);
-					
-				} catch (EnergyManagementException e) {
-					logger.warn("Error while handling event for component \"{}\": ", component.getId(), e);
 				}
-			}
+				handleComponentInterrupt(component);
+			});
 		}
 	}
 
-	private void handleComponentSchedule(SchedulableService component) throws EnergyManagementException {
+	private void handleComponentSchedule(SchedulableService component, ControlSchedule schedule) 
+			throws EnergyManagementException {
+		Long timestamp = scheduled.put(component.getId(), schedule.getTimestamp());
+		if (timestamp != null && timestamp >= schedule.getTimestamp()) {
+			return;
+		}
 		try {
 			if (schedule.contains(component)) {
 				((SchedulableService) component).schedule(schedule.get(component));
@@ -431,11 +450,9 @@ public final class EnergyManager extends Configurable
 
 	private void handleComponentInterrupt(Component component) throws EnergyManagementException {
         try {
-    		Method method = Component.class.getDeclaredMethod("interrupt");
-    		method.setAccessible(true);
-        	method.invoke(component);
+        	INTERRUPT.invoke(component);
 
-        } catch (IllegalAccessException | NoSuchMethodException | SecurityException e) {
+        } catch (IllegalAccessException | SecurityException e) {
             throw new RuntimeException(e);
             
         } catch (InvocationTargetException e) {
@@ -0,0 +1,155 @@
+/* 
+ * Copyright 2016-2021 ISC Konstanz
+ * 
+ * This file is part of TH-E-EMS.
+ * For more information visit https://github.com/isc-konstanz/th-e-ems
+ * 
+ * TH-E-EMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * TH-E-EMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with TH-E-EMS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.the.ems.main.config;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.the.ems.core.ComponentType;
+
+/**
+ * Dependency graph of all component configurations, to be registered on startup.
+ * <p>
+ * Components depend on all components of the types they reference, e.g. heatings on thermal energy storages 
+ * and controls on all other components. Additional dependencies may be declared with the comma separated 
+ * component IDs of the general "depends" key. Components on the same phase do not depend on each other.
+ */
+final class ComponentGraph {
+	private final static Logger logger = LoggerFactory.getLogger(ComponentGraph.class);
+
+	final static String DEPENDS = "depends";
+
+	private final static Map<ComponentType, Set<ComponentType>> references = 
+			new EnumMap<ComponentType, Set<ComponentType>>(ComponentType.class);
+
+	static {
+		Set<ComponentType> heating = EnumSet.of(ComponentType.THERMAL_ENERGY_STORAGE);
+		references.put(ComponentType.COMBINED_HEAT_POWER, heating);
+		references.put(ComponentType.HEAT_PUMP, heating);
+		references.put(ComponentType.HEATING_ROD, heating);
+		references.put(ComponentType.INVERTER, EnumSet.of(ComponentType.ELECTRICAL_ENERGY_STORAGE));
+		references.put(ComponentType.CONTROL, EnumSet.complementOf(EnumSet.of(ComponentType.CONTROL)));
+	}
+
+	static final class Node {
+
+		final String id;
+
+		final File file;
+
+		final ComponentType type;
+
+		final ConfigurationReader configs;
+
+		final Set<Node> dependencies = new HashSet<Node>();
+
+		int phase = -1;
+
+		private Node(String id, File file, ComponentType type, ConfigurationReader configs) {
+			this.id = id;
+			this.file = file;
+			this.type = type;
+			this.configs = configs;
+		}
+	}
+
+	private final Map<String, Node> nodes = new LinkedHashMap<String, Node>();
+
+	private final List<List<Node>> phases = new ArrayList<List<Node>>();
+
+	void add(String id, File file, ComponentType type, ConfigurationReader configs) {
+		nodes.put(id, new Node(id, file, type, configs));
+	}
+
+	ComponentGraph build() {
+		for (Node node : nodes.values()) {
+			Set<ComponentType> types = references.getOrDefault(node.type, Collections.emptySet());
+			for (Node dependency : nodes.values()) {
+				if (dependency != node && types.contains(dependency.type)) {
+					node.dependencies.add(dependency);
+				}
+			}
+			if (node.configs.containsKey(ConfigurationReader.GENERAL, DEPENDS)) {
+				for (String id : node.configs.get(ConfigurationReader.GENERAL, DEPENDS).split(",")) {
+					Node dependency = nodes.get(id.trim());
+					if (dependency == null) {
+						logger.warn("Unknown dependency of component {}: {}", node.id, id.trim());
+						continue;
+					}
+					node.dependencies.add(dependency);
+				}
+			}
+		}
+		for (Node node : nodes.values()) {
+			getPhase(node, new HashSet<Node>());
+		}
+		return this;
+	}
+
+	/**
+	 * Returns the longest path to a component without dependencies. Dependencies closing a cycle are dropped.
+	 */
+	private int getPhase(Node node, Set<Node> path) {
+		if (node.phase >= 0) {
+			return node.phase;
+		}
+		path.add(node);
+		int phase = 0;
+		for (Node dependency : new ArrayList<Node>(node.dependencies)) {
+			if (path.contains(dependency)) {
+				logger.warn("Ignoring cyclic dependency of component {} on {}", node.id, dependency.id);
+				node.dependencies.remove(dependency);
+				continue;
+			}
+			phase = Math.max(phase, getPhase(dependency, path) + 1);
+		}
+		path.remove(node);
+		
+		node.phase = phase;
+		while (phases.size() <= phase) {
+			phases.add(new ArrayList<Node>());
+		}
+		phases.get(phase).add(node);
+		return phase;
+	}
+
+	Collection<Node> getNodes() {
+		return nodes.values();
+	}
+
+	/**
+	 * Returns all components, grouped by their phase in dependency order.
+	 */
+	List<List<Node>> getPhases() {
+		return phases;
+	}
+
+}
@@ -0,0 +1,329 @@
+/* 
+ * Copyright 2016-2021 ISC Konstanz
+ * 
+ * This file is part of TH-E-EMS.
+ * For more information visit https://github.com/isc-konstanz/th-e-ems
+ * 
+ * TH-E-EMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * TH-E-EMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with TH-E-EMS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.the.ems.main.config;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.the.ems.core.config.ConfigurationException;
+
+/**
+ * Binary cache of the merged configurations of all components, to skip parsing unchanged INI files on startup.
+ * <p>
+ * Cached configurations are keyed by the path, modification time, size and content hash of all their source files. 
+ * Entries are valid, if all sources still exist in the same order and either their modification time and size, 
+ * or their content hash did not change. The cache file is rewritten atomically.
+ * <p>
+ * A source verified within the timestamp resolution of its modification time may have been changed again, 
+ * without its modification time or size changing. Such racy sources, e.g. on FAT file systems with a 
+ * resolution of 2 seconds, will always be verified by their content hash.
+ */
+final class ConfigurationCache {
+	private final static Logger logger = LoggerFactory.getLogger(ConfigurationCache.class);
+
+	private final static int MAGIC = 0x54484543;
+	private final static int VERSION = 2;
+
+	private final static long MODIFIED_RESOLUTION = 2000;
+
+	@FunctionalInterface
+	static interface Parser {
+
+		ConfigurationReader parse() throws ConfigurationException;
+
+	}
+
+	private static final class Source {
+
+		private final String path;
+		private final long modified;
+		private final long verified;
+		private final long size;
+		private final byte[] hash;
+
+		private Source(String path, long modified, long verified, long size, byte[] hash) {
+			this.path = path;
+			this.modified = modified;
+			this.verified = verified;
+			this.size = size;
+			this.hash = hash;
+		}
+
+		private Source(File file) throws IOException {
+			this(file.getAbsolutePath(), file.lastModified(), System.currentTimeMillis(), file.length(), hash(file));
+		}
+
+		private boolean isRacy() {
+			return verified - modified < MODIFIED_RESOLUTION;
+		}
+
+		private Source verify(long modified, long verified) {
+			return new Source(path, modified, verified, size, hash);
+		}
+	}
+
+	private static final class Configs {
+
+		private final List<Source> sources;
+
+		private final Map<String, String> values;
+
+		private Configs(List<Source> sources, Map<String, String> values) {
+			this.sources = sources;
+			this.values = values;
+		}
+	}
+
+	private final Map<String, Configs> entries = new ConcurrentHashMap<String, Configs>();
+
+	private final Path file;
+
+	private volatile boolean modified = false;
+
+	ConfigurationCache(Path file) {
+		this.file = file;
+	}
+
+	/**
+	 * Loads the cache file. An unreadable or outdated cache file is ignored and will be rewritten.
+	 */
+	void load() {
+		if (file == null || !Files.exists(file)) {
+			return;
+		}
+		long start = System.currentTimeMillis();
+		try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+				logger.debug("Ignoring incompatible configuration cache: {}", file);
+				return;
+			}
+			int count = input.readInt();
+			for (int i = 0; i < count; i++) {
+				String id = input.readUTF();
+				
+				int sourceCount = input.readInt();
+				List<Source> sources = new ArrayList<Source>(sourceCount);
+				for (int s = 0; s < sourceCount; s++) {
+					String path = input.readUTF();
+					long modified = input.readLong();
+					long verified = input.readLong();
+					long size = input.readLong();
+					byte[] hash = new byte[input.readUnsignedByte()];
+					input.readFully(hash);
+					sources.add(new Source(path, modified, verified, size, hash));
+				}
+				int valueCount = input.readInt();
+				Map<String, String> values = new HashMap<String, String>(valueCount*4/3+1);
+				for (int v = 0; v < valueCount; v++) {
+					values.put(input.readUTF(), input.readUTF());
+				}
+				entries.put(id, new Configs(sources, values));
+			}
+			logger.debug("Loaded {} cached configurations in {}ms", count, System.currentTimeMillis() - start);
+			
+		} catch (IOException e) {
+			logger.warn("Ignoring unreadable configuration cache {}: {}", file, e.getMessage());
+			entries.clear();
+		}
+	}
+
+	/**
+	 * Returns the cached configurations of a component, if all of its source files are unchanged. 
+	 * Otherwise, the configurations will be parsed and cached.
+	 */
+	ConfigurationReader get(String id, List<File> files, Parser parser) throws ConfigurationException {
+		if (file == null || files.isEmpty() || !files.get(0).exists()) {
+			return parser.parse();
+		}
+		Configs configs = entries.get(id);
+		if (configs != null) {
+			Configs verified = verify(configs, files);
+			if (verified != null) {
+				if (verified != configs && entries.replace(id, configs, verified)) {
+					modified = true;
+				}
+				return new ConfigurationReader(verified.values);
+			}
+		}
+		List<Source> sources = new ArrayList<Source>(files.size());
+		try {
+			// Sources are described before parsing, so changes while parsing invalidate the entry
+			for (File source : files) {
+				sources.add(new Source(source));
+			}
+		} catch (IOException e) {
+			logger.debug("Unable to cache configuration {}: {}", id, e.getMessage());
+			entries.remove(id);
+			return parser.parse();
+		}
+		ConfigurationReader reader = parser.parse();
+		
+		Map<String, String> values = new HashMap<String, String>(reader.size()*4/3+1);
+		for (Entry<String, Object> entry : reader.entrySet()) {
+			values.put(entry.getKey(), String.valueOf(entry.getValue()));
+		}
+		entries.put(id, new Configs(sources, values));
+		modified = true;
+		
+		return reader;
+	}
+
+	/**
+	 * Returns the cached configurations, if all of their sources are unchanged, or null otherwise. 
+	 * Sources verified by their content hash will be replaced in a new instance, as entries are shared 
+	 * between the loading threads and the writing thread.
+	 */
+	private Configs verify(Configs configs, List<File> files) {
+		if (configs.sources.size() != files.size()) {
+			return null;
+		}
+		List<Source> sources = configs.sources;
+		for (int i = 0; i < files.size(); i++) {
+			Source source = configs.sources.get(i);
+			File file = files.get(i);
+			if (!source.path.equals(file.getAbsolutePath())) {
+				return null;
+			}
+			long modified = file.lastModified();
+			if (source.modified == modified && source.size == file.length() && !source.isRacy()) {
+				continue;
+			}
+			try {
+				long verified = System.currentTimeMillis();
+				if (!Arrays.equals(source.hash, hash(file))) {
+					return null;
+				}
+				if (sources == configs.sources) {
+					sources = new ArrayList<Source>(configs.sources);
+				}
+				sources.set(i, source.verify(modified, verified));
+				
+			} catch (IOException e) {
+				return null;
+			}
+		}
+		if (sources == configs.sources) {
+			return configs;
+		}
+		return new Configs(sources, configs.values);
+	}
+
+	/**
+	 * Writes all entries with existing sources to the cache file, if any entry changed.
+	 */
+	synchronized void write() {
+		if (file == null) {
+			return;
+		}
+		Iterator<Configs> iterator = entries.values().iterator();
+		while (iterator.hasNext()) {
+			Configs configs = iterator.next();
+			if (configs.sources.isEmpty() || !new File(configs.sources.get(0).path).exists()) {
+				iterator.remove();
+				modified = true;
+			}
+		}
+		if (!modified) {
+			return;
+		}
+		modified = false;
+		
+		Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+		try {
+			try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+				List<Entry<String, Configs>> entries = new ArrayList<Entry<String, Configs>>(this.entries.entrySet());
+				output.writeInt(MAGIC);
+				output.writeInt(VERSION);
+				output.writeInt(entries.size());
+				for (Entry<String, Configs> entry : entries) {
+					output.writeUTF(entry.getKey());
+					
+					List<Source> sources = entry.getValue().sources;
+					output.writeInt(sources.size());
+					for (Source source : sources) {
+						output.writeUTF(source.path);
+						output.writeLong(source.modified);
+						output.writeLong(source.verified);
+						output.writeLong(source.size);
+						output.writeByte(source.hash.length);
+						output.write(source.hash);
+					}
+					Map<String, String> values = entry.getValue().values;
+					output.writeInt(values.size());
+					for (Entry<String, String> value : values.entrySet()) {
+						output.writeUTF(value.getKey());
+						output.writeUTF(value.getValue());
+					}
+				}
+			}
+			try {
+				Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} catch (IOException e) {
+			logger.warn("Unable to write configuration cache {}: {}", file, e.getMessage());
+			modified = true;
+			try {
+				Files.deleteIfExists(temp);
+				
+			} catch (IOException ignore) {
+			}
+		}
+	}
+
+	private static byte[] hash(File file) throws IOException {
+		return newDigest().digest(Files.readAllBytes(file.toPath()));
+	}
+
+	/**
+	 * Creates the digest, configuration files are hashed with to detect changes of their content.
+	 */
+	static MessageDigest newDigest() throws IOException {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+			
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		}
+	}
+
+}
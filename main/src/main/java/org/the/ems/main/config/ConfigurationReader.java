@@ -21,6 +21,7 @@ package org.the.ems.main.config;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Map;
 import java.util.Map.Entry;
 
 import org.ini4j.Ini;
@@ -35,6 +36,15 @@ public class ConfigurationReader extends Configurations {
 
 	private static final Logger logger = LoggerFactory.getLogger(ConfigurationReader.class);
 
+	public ConfigurationReader() {
+		super();
+	}
+
+	@SuppressWarnings("unchecked")
+	ConfigurationReader(Map<String, ?> configs) {
+		super((Map<String, Object>) configs);
+	}
+
 	protected ConfigurationReader configure(File[] files) throws ConfigurationException {
 		if (files != null && files.length > 0) {
 			for (File file : files) {
@@ -21,21 +21,32 @@ package org.the.ems.main.config;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.FileSystems;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardWatchEventKinds;
-import java.nio.file.WatchEvent;
-import java.nio.file.WatchKey;
-import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceEvent;
+import org.osgi.framework.ServiceListener;
 import org.osgi.service.cm.ConfigurationAdmin;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
 import org.osgi.service.component.annotations.Reference;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -45,20 +56,31 @@ import org.the.ems.core.config.ConfigurationException;
 import org.the.ems.main.EnergyManager;
 
 @Component(service = ConfigurationService.class, immediate = true)
-public final class ConfigurationService extends Thread {
+public final class ConfigurationService extends Thread implements ServiceListener {
 	private final static Logger logger = LoggerFactory.getLogger(ConfigurationService.class);
 
 	private final static String CONFIG_DIR_DEFAULT = "conf" + File.separator + "components" + File.separator;
 	private final static String CONFIG_DIR = System.getProperty("org.the.ems.config", CONFIG_DIR_DEFAULT);
 
+	private final static String CONFIG_CACHE = System.getProperty("org.the.ems.config.cache");
+
+	private final static String STARTUP_THREADS = System.getProperty("org.the.ems.config.startup.threads", 
+			String.valueOf(Runtime.getRuntime().availableProcessors()));
+	private final static String STARTUP_TIMEOUT = System.getProperty("org.the.ems.config.startup.timeout", "10");
+
 	private final Path dir = Paths.get(CONFIG_DIR);
 
 	private File[] files = dir.toFile().listFiles((d, name) -> name.endsWith(".cfg"));
 
-	private Map<WatchKey, Path> keys = new HashMap<WatchKey, Path>();
-	private Map<String, Long> times = new HashMap<String, Long>();
+	private ConfigurationWatcher watcher;
+
+	private final ConfigurationCache cache = new ConfigurationCache(CONFIG_CACHE == null ? dir.resolve(".cache") : 
+			CONFIG_CACHE.isEmpty() ? null : Paths.get(CONFIG_CACHE));
 
-	private WatchService watcher;
+	private final Map<String, CompletableFuture<Boolean>> registrations = 
+			new ConcurrentHashMap<String, CompletableFuture<Boolean>>();
+
+	private BundleContext context;
 
 	@Reference
 	ConfigurationAdmin configs;
@@ -69,7 +91,11 @@ public final class ConfigurationService extends Thread {
 	@Activate
 	protected void activate(BundleContext context) {
 		try {
-			watcher = FileSystems.getDefault().newWatchService();
+			this.context = context;
+			this.context.addServiceListener(this, "(" + ConfigurationReader.GENERAL + ".id=*)");
+			
+			cache.load();
+			watcher = new ConfigurationWatcher(this, dir);
 			load(EnergyManager.PID, ConfigurationReader.read(
 					EnergyManager.ID, dir.resolve(EnergyManager.ID + ".cfg").toFile()));
 			
@@ -81,152 +107,194 @@ public final class ConfigurationService extends Thread {
 		}
 	}
 
+	@Deactivate
+	protected void deactivate() {
+		context.removeServiceListener(this);
+		watcher.close();
+		interrupt();
+	}
+
 	@Override
-	public void run() {
-		logger.debug("Starting TH-E Configuration");
-		try {
-			if (files == null || files.length <= 1) {
-				return;
-			}
-			wait(1);
-			
-			// FIXME: maybe use BundleListener to see if a bundle with the configured PID started
-			// and only continue if all bundles are active, instead of waiting a second
-			
-			register(ComponentType.GENERAL);
-			register(ComponentType.ELECTRIC_VEHICLE, ComponentType.VENTILATION);
-			register(ComponentType.ELECTRICAL_ENERGY_STORAGE, 
-					ComponentType.THERMAL_ENERGY_STORAGE);
-			
-			wait(1);
-			register(ComponentType.COMBINED_HEAT_POWER, 
-					ComponentType.HEAT_PUMP, 
-					ComponentType.HEATING_ROD);
-			register(ComponentType.INVERTER);
-			
-			wait(1);
-			register(ComponentType.CONTROL);
-			
-		} catch (Exception e) {
-			logger.error("Error while initializing configurations: {}", e.getMessage());
+	public void serviceChanged(ServiceEvent event) {
+		if (event.getType() == ServiceEvent.REGISTERED) {
+			Object id = event.getServiceReference().getProperty(ConfigurationReader.GENERAL + ".id");
+			getRegistration(String.valueOf(id)).complete(true);
 		}
 	}
 
-	private void wait(int seconds) {
-		try {
-			Thread.sleep(seconds*1000);
-			
-		} catch (InterruptedException e) {
-		}
+	private CompletableFuture<Boolean> getRegistration(String id) {
+		return registrations.computeIfAbsent(id, i -> new CompletableFuture<Boolean>());
 	}
 
-	public void watch() {
-		try {
-			WatchKey key = watcher.poll();
-			if (key == null || !keys.containsKey(key)) {
-				return;
+	@Override
+	public void run() {
+		logger.debug("Starting TH-E Configuration");
+		if (files == null || files.length <= 1) {
+			watch();
+			return;
+		}
+		long start = System.currentTimeMillis();
+		
+		ComponentGraph graph = new ComponentGraph();
+		for (File file : files) {
+			String id = parseId(file);
+			if (id.equals(EnergyManager.ID)) {
+				continue;
 			}
-			for (WatchEvent<?> event : key.pollEvents()) {
-				WatchEvent.Kind<?> kind = event.kind();
-				
-				// This key is registered only for ENTRY_CREATE events,
-				// but an OVERFLOW event can occur regardless if events
-				// are lost or discarded.
-				if (kind == StandardWatchEventKinds.OVERFLOW) {
-					continue;
-				}
-				Path path = keys.get(key);
-				File file;
-				if (Files.isSameFile(path, dir)) {
-					file = path.resolve((Path) event.context()).toFile();
-				}
-				else {
-					file = path.toFile();
-				}
-				if (times.containsKey(file.getPath()) && times.get(file.getPath()) <= file.lastModified()) {
-					continue;
+			try {
+				Path dir = this.dir.resolve(id.concat(".d"));
+				if (dir.toFile().isDirectory()) {
+					register(dir);
 				}
-				times.put(file.getPath(), file.lastModified());
+				graph.add(id, file, parseType(id), read(id));
+				watcher.update(id);
 				
-				load(file);
+			} catch (ConfigurationException | IOException e) {
+				logger.error("Error while reading configuration {}: {}", file.getName(), e.getMessage());
 			}
-			key.reset();
-			
-		} catch (ConfigurationException | IOException e) {
-			logger.debug("Error while watching configuration updates");
 		}
-	}
-
-	private void register(Path dir) throws IOException {
-		WatchKey key = dir.register(watcher,
-				StandardWatchEventKinds.ENTRY_CREATE,
-				StandardWatchEventKinds.ENTRY_MODIFY,
-				StandardWatchEventKinds.ENTRY_DELETE);
+		graph.build();
+		cache.write();
 		
-		keys.put(key, dir);
-	}
-
-	private void register(ComponentType... types) throws Exception {
-		for (ComponentType type : types) {
-			files:
-			for (File file : files) {
-				String id = file.getName();
-				int pos = id.lastIndexOf(".");
-				if (pos > 0) {
-					id = id.substring(0, pos);
-				}
-				if (id.equals(EnergyManager.ID)) {
-					continue;
+		int threads;
+		long timeout;
+		try {
+			threads = Integer.parseInt(STARTUP_THREADS);
+			timeout = Long.parseLong(STARTUP_TIMEOUT);
+			
+		} catch (NumberFormatException e) {
+			logger.warn("Invalid startup configuration, falling back to defaults: {}", e.getMessage());
+			threads = Runtime.getRuntime().availableProcessors();
+			timeout = 10;
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(threads, 1), new StartupThreadFactory());
+		try {
+			Map<ComponentGraph.Node, CompletableFuture<Boolean>> registered = 
+					new HashMap<ComponentGraph.Node, CompletableFuture<Boolean>>();
+			Map<ComponentGraph.Node, long[]> timings = new ConcurrentHashMap<ComponentGraph.Node, long[]>();
+			
+			for (List<ComponentGraph.Node> phase : graph.getPhases()) {
+				for (ComponentGraph.Node node : phase) {
+					registered.put(node, register(node, registered, timings, executor, timeout));
 				}
-				if (!id.startsWith(type.getKey())) {
-					if (type != ComponentType.GENERAL) {
-						continue;
+			}
+			for (int i = 0; i < graph.getPhases().size(); i++) {
+				List<ComponentGraph.Node> phase = graph.getPhases().get(i);
+				Set<ComponentType> types = EnumSet.noneOf(ComponentType.class);
+				int count = 0;
+				long phaseStart = Long.MAX_VALUE;
+				long phaseEnd = start;
+				for (ComponentGraph.Node node : phase) {
+					if (registered.get(node).join()) {
+						count++;
 					}
-					else {
-						for (ComponentType t : ComponentType.values()) {
-							if (id.startsWith(t.getKey())) {
-								continue files;
-							}
-						}
+					types.add(node.type);
+					
+					long[] timing = timings.get(node);
+					if (timing != null) {
+						phaseStart = Math.min(phaseStart, timing[0]);
+						phaseEnd = Math.max(phaseEnd, timing[1]);
 					}
 				}
-				Path dir = this.dir.resolve(id.concat(".d"));
-				if (dir.toFile().isDirectory()) {
-					register(dir);
+				if (phaseStart > phaseEnd) {
+					phaseStart = phaseEnd;
 				}
-				load(file, id, type);
+				logger.info("Started {}/{} components of phase {} {} in {}ms, {}ms after startup", 
+						count, phase.size(), i, types, phaseEnd - phaseStart, phaseEnd - start);
 			}
+		} catch (CancellationException | CompletionException e) {
+			logger.error("Error while initializing configurations: {}", e.getMessage());
+			
+		} finally {
+			executor.shutdown();
 		}
+		watch();
 	}
 
-	private void load(File file) throws ConfigurationException {
-		String id = file.getName();
-		int pos = id.lastIndexOf(".");
-		if (pos > 0) {
-			id = id.substring(0, pos);
+	/**
+	 * Starts watching the configuration files, after all components were loaded and their hashes recorded. 
+	 * Changes while starting up are held by the registered watch keys, and will be verified by their hashes.
+	 */
+	private void watch() {
+		if (!isInterrupted()) {
+			watcher.start();
 		}
+	}
+
+	/**
+	 * Registers the configuration of a component as soon as all its dependencies were registered as service, 
+	 * or timed out. The returned future completes with false, if the component did not register in time.
+	 * The times the component started loading and completed its registration will be recorded in the timings.
+	 */
+	private CompletableFuture<Boolean> register(ComponentGraph.Node node, 
+			Map<ComponentGraph.Node, CompletableFuture<Boolean>> registered, 
+			Map<ComponentGraph.Node, long[]> timings, ExecutorService executor, long timeout) {
+		
+		CompletableFuture<?>[] dependencies = node.dependencies.stream()
+				.map(d -> registered.get(d))
+				.toArray(CompletableFuture<?>[]::new);
+		
+		return CompletableFuture.allOf(dependencies)
+				.thenComposeAsync(v -> {
+					long start = System.currentTimeMillis();
+					try {
+						load(node.file, node.id, node.type, node.configs);
+						
+					} catch (ConfigurationException e) {
+						logger.error("Error while loading configuration {}: {}", node.file.getName(), e.getMessage());
+						timings.put(node, new long[] { start, System.currentTimeMillis() });
+						return CompletableFuture.completedFuture(false);
+					}
+					return getRegistration(node.id)
+							.completeOnTimeout(false, timeout, TimeUnit.SECONDS)
+							.thenApply(r -> {
+								timings.put(node, new long[] { start, System.currentTimeMillis() });
+								if (r) {
+									logger.debug("Registered component {} in {}ms", 
+											node.id, System.currentTimeMillis() - start);
+								}
+								else {
+									logger.warn("Component {} not registered after {}s", node.id, timeout);
+								}
+								return r;
+							});
+				}, executor);
+	}
+
+	private void register(Path dir) throws IOException {
+		watcher.register(dir);
+	}
+
+	void reload(String id) throws ConfigurationException {
 		if (id.equals(EnergyManager.ID)) {
 			return;
 		}
-		ComponentType type = ComponentType.GENERAL;
-		for (ComponentType t : ComponentType.values()) {
-			if (id.startsWith(t.getKey())) {
-				type = t;
-				break;
-			}
-		}
-		load(file, id, type);
+		logger.info("Reloading configuration: {}", id);
+		load(dir.resolve(id.concat(".cfg")).toFile(), id, parseType(id), read(id));
+		cache.write();
 	}
 
-	private void load(File file, String id, ComponentType type) throws ConfigurationException {
-		ConfigurationReader configs = ConfigurationReader.read(id, dir.resolve(id.concat(".cfg")).toFile());
-
+	private ConfigurationReader read(String id) throws ConfigurationException {
+		List<File> files = new ArrayList<File>();
+		files.add(dir.resolve(id.concat(".cfg")).toFile());
+		
 		File[] dir = this.dir.resolve(id+".d").toFile().listFiles((d, name) -> name.endsWith(".cfg"));
 		if (dir != null && dir.length > 0) {
-			for (File opt : dir) {
+			Arrays.sort(dir);
+			files.addAll(Arrays.asList(dir));
+		}
+		return cache.get(id, files, () -> {
+			ConfigurationReader configs = ConfigurationReader.read(id, files.get(0));
+			for (File opt : files.subList(1, files.size())) {
 				configs.configure(opt);
 			}
-		}
+			return configs;
+		});
+	}
+
+	private void load(File file, String id, ComponentType type, ConfigurationReader configs) throws ConfigurationException {
+		preload(configs);
+		
 		if (id.startsWith(type.getKey())) {
 			String pid = type.getId();
 			if (configs.containsKey(ConfigurationReader.GENERAL, "type")) {
@@ -250,6 +318,34 @@ public final class ConfigurationService extends Thread {
 		throw new ConfigurationException("Missing PID for component configuration: "+file.getName());
 	}
 
+	private static String parseId(File file) {
+		String id = file.getName();
+		int pos = id.lastIndexOf(".");
+		if (pos > 0) {
+			id = id.substring(0, pos);
+		}
+		return id;
+	}
+
+	private static ComponentType parseType(String id) {
+		for (ComponentType type : ComponentType.values()) {
+			if (id.startsWith(type.getKey())) {
+				return type;
+			}
+		}
+		return ComponentType.GENERAL;
+	}
+
+	private void preload(ConfigurationReader configs) {
+		List<String> values = new ArrayList<String>(configs.size());
+		for (Object value : configs.values()) {
+			if (value instanceof String) {
+				values.add((String) value);
+			}
+		}
+		content.preload(values);
+	}
+
 	private void load(String pid, String alias, ConfigurationReader configs) throws ConfigurationException {
 		if (logger.isDebugEnabled()) {
 			logger.debug("Loading component {} {}", pid.concat("~").concat(alias), configs);
@@ -272,4 +368,16 @@ public final class ConfigurationService extends Thread {
 		}
 	}
 
+	private static class StartupThreadFactory implements ThreadFactory {
+
+		private final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "TH-E EMS startup " + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+
 }
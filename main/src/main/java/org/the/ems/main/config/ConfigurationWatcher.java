@@ -0,0 +1,253 @@
+/* 
+ * Copyright 2016-2021 ISC Konstanz
+ * 
+ * This file is part of TH-E-EMS.
+ * For more information visit https://github.com/isc-konstanz/th-e-ems
+ * 
+ * TH-E-EMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * TH-E-EMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with TH-E-EMS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.the.ems.main.config;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.the.ems.core.config.ConfigurationException;
+
+/**
+ * Watches the component configuration directory and all drop-in directories for changes.
+ * <p>
+ * Changes of a component are debounced, so files written in several steps and bursts of changes 
+ * in its drop-in directory are reloaded once. Components are only reloaded if the hash of the 
+ * contents of its configuration files changed.
+ */
+final class ConfigurationWatcher extends Thread {
+	private final static Logger logger = LoggerFactory.getLogger(ConfigurationWatcher.class);
+
+	private final static String DEBOUNCE = System.getProperty("org.the.ems.config.watch.debounce", "500");
+
+	private final static String SUFFIX = ".cfg";
+	private final static String DIR_SUFFIX = ".d";
+
+	private final ConfigurationService service;
+
+	private final WatchService watcher;
+
+	private final Path dir;
+
+	private final Map<WatchKey, Path> keys = new ConcurrentHashMap<WatchKey, Path>();
+
+	private final Map<String, byte[]> hashes = new ConcurrentHashMap<String, byte[]>();
+
+	/**
+	 * Reload deadlines of all changed components.
+	 */
+	private final Map<String, Long> pending = new ConcurrentHashMap<String, Long>();
+
+	private final long debounce;
+
+	ConfigurationWatcher(ConfigurationService service, Path dir) throws IOException {
+		super("TH-E EMS configuration watcher");
+		setDaemon(true);
+		
+		this.service = service;
+		this.dir = dir;
+		this.watcher = FileSystems.getDefault().newWatchService();
+		
+		long debounce;
+		try {
+			debounce = Long.parseLong(DEBOUNCE);
+			
+		} catch (NumberFormatException e) {
+			logger.warn("Invalid configuration watch debounce: {}", DEBOUNCE);
+			debounce = 500;
+		}
+		this.debounce = debounce;
+	}
+
+	void register(Path dir) throws IOException {
+		WatchKey key = dir.register(watcher,
+				StandardWatchEventKinds.ENTRY_CREATE,
+				StandardWatchEventKinds.ENTRY_MODIFY,
+				StandardWatchEventKinds.ENTRY_DELETE);
+		
+		keys.put(key, dir);
+	}
+
+	/**
+	 * Updates the content hash of a component, e.g. after it was loaded on startup.
+	 */
+	void update(String id) {
+		try {
+			hashes.put(id, hash(id));
+			
+		} catch (IOException e) {
+			logger.debug("Unable to hash configuration {}: {}", id, e.getMessage());
+		}
+	}
+
+	void close() {
+		interrupt();
+		try {
+			watcher.close();
+			
+		} catch (IOException e) {
+			logger.debug("Error closing configuration watcher: {}", e.getMessage());
+		}
+	}
+
+	@Override
+	public void run() {
+		while (!isInterrupted()) {
+			try {
+				WatchKey key;
+				if (pending.isEmpty()) {
+					key = watcher.take();
+				}
+				else {
+					long deadline = pending.values().stream().mapToLong(Long::longValue).min().getAsLong();
+					key = watcher.poll(Math.max(deadline - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+				}
+				while (key != null) {
+					handle(key);
+					key = watcher.poll();
+				}
+				reload();
+				
+			} catch (InterruptedException | ClosedWatchServiceException e) {
+				break;
+			}
+		}
+		logger.debug("Stopped watching configurations");
+	}
+
+	private void handle(WatchKey key) {
+		Path path = keys.get(key);
+		if (path == null) {
+			key.cancel();
+			return;
+		}
+		for (WatchEvent<?> event : key.pollEvents()) {
+			if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+				// Events were lost, schedule all components to be verified by their hashes
+				File[] files = dir.toFile().listFiles((d, name) -> name.endsWith(SUFFIX));
+				if (files != null) {
+					for (File file : files) {
+						schedule(parseId(file.getName(), SUFFIX));
+					}
+				}
+				continue;
+			}
+			Path file = path.resolve((Path) event.context());
+			String name = file.getFileName().toString();
+			if (path.equals(dir)) {
+				if (name.endsWith(SUFFIX)) {
+					schedule(parseId(name, SUFFIX));
+				}
+				else if (name.endsWith(DIR_SUFFIX) && Files.isDirectory(file) && 
+						event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+					try {
+						register(file);
+						
+					} catch (IOException e) {
+						logger.warn("Unable to watch configuration directory {}: {}", file, e.getMessage());
+					}
+					schedule(parseId(name, DIR_SUFFIX));
+				}
+			}
+			else if (name.endsWith(SUFFIX)) {
+				schedule(parseId(path.getFileName().toString(), DIR_SUFFIX));
+			}
+		}
+		if (!key.reset()) {
+			keys.remove(key);
+		}
+	}
+
+	private void schedule(String id) {
+		pending.put(id, System.currentTimeMillis() + debounce);
+	}
+
+	private void reload() {
+		long now = System.currentTimeMillis();
+		Iterator<Entry<String, Long>> iterator = pending.entrySet().iterator();
+		while (iterator.hasNext()) {
+			Entry<String, Long> entry = iterator.next();
+			if (entry.getValue() > now) {
+				continue;
+			}
+			iterator.remove();
+			
+			String id = entry.getKey();
+			if (!dir.resolve(id.concat(SUFFIX)).toFile().exists()) {
+				logger.debug("Skipping removed configuration: {}", id);
+				hashes.remove(id);
+				continue;
+			}
+			try {
+				byte[] hash = hash(id);
+				if (Arrays.equals(hash, hashes.get(id))) {
+					logger.trace("Skipping unchanged configuration: {}", id);
+					continue;
+				}
+				service.reload(id);
+				hashes.put(id, hash);
+				
+			} catch (IOException | ConfigurationException e) {
+				logger.warn("Error reloading configuration {}: {}", id, e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Hashes the names and contents of the configuration file of a component and all files of its drop-in directory.
+	 */
+	private byte[] hash(String id) throws IOException {
+		MessageDigest digest = ConfigurationCache.newDigest();
+		File file = dir.resolve(id.concat(SUFFIX)).toFile();
+		if (file.exists()) {
+			digest.update(Files.readAllBytes(file.toPath()));
+		}
+		File[] files = dir.resolve(id.concat(DIR_SUFFIX)).toFile().listFiles((d, name) -> name.endsWith(SUFFIX));
+		if (files != null) {
+			Arrays.sort(files);
+			for (File opt : files) {
+				digest.update(opt.getName().getBytes());
+				digest.update(Files.readAllBytes(opt.toPath()));
+			}
+		}
+		return digest.digest();
+	}
+
+	private static String parseId(String name, String suffix) {
+		return name.substring(0, name.length() - suffix.length());
+	}
+
+}
@@ -0,0 +1,140 @@
+/* 
+ * Copyright 2016-2021 ISC Konstanz
+ * 
+ * This file is part of TH-E-EMS.
+ * For more information visit https://github.com/isc-konstanz/th-e-ems
+ * 
+ * TH-E-EMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * TH-E-EMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with TH-E-EMS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.the.ems.main.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.the.ems.core.config.ConfigurationException;
+
+public class TestConfigurationCache {
+
+	private Path dir;
+
+	private File config;
+
+	private int parsed;
+
+	@Before
+	public void newTestDirectory() throws IOException {
+		dir = Files.createTempDirectory("th-e-ems-cache");
+		config = dir.resolve("test.cfg").toFile();
+		parsed = 0;
+	}
+
+	@After
+	public void deleteTestDirectory() throws IOException {
+		try (Stream<Path> paths = Files.walk(dir)) {
+			paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+		}
+	}
+
+	@Test
+	public void testModified() throws Exception {
+		ConfigurationCache cache = new ConfigurationCache(dir.resolve("cache"));
+		long time = System.currentTimeMillis();
+		writeConfig("1", time - 12000);
+		assertEquals("1", get(cache));
+		assertEquals("1", get(cache));
+		assertEquals(1, parsed);
+		
+		// Only the modification time changed and the content hash still matches
+		config.setLastModified(time - 8000);
+		assertEquals("1", get(cache));
+		assertEquals(1, parsed);
+		
+		writeConfig("2", time - 4000);
+		assertEquals("2", get(cache));
+		assertEquals(2, parsed);
+	}
+
+	@Test
+	public void testRacy() throws Exception {
+		ConfigurationCache cache = new ConfigurationCache(dir.resolve("cache"));
+		long modified = System.currentTimeMillis();
+		writeConfig("1", modified);
+		assertEquals("1", get(cache));
+		
+		// Changed within the timestamp resolution, without the modification time or size changing
+		writeConfig("2", modified);
+		assertEquals("2", get(cache));
+		assertEquals(2, parsed);
+	}
+
+	@Test
+	public void testWrite() throws Exception {
+		Path file = dir.resolve("cache");
+		ConfigurationCache cache = new ConfigurationCache(file);
+		long time = System.currentTimeMillis();
+		writeConfig("1", time - 8000);
+		assertEquals("1", get(cache));
+		cache.write();
+		
+		assertTrue(Files.exists(file));
+		assertFalse(Files.exists(dir.resolve("cache.tmp")));
+		
+		cache = new ConfigurationCache(file);
+		cache.load();
+		assertEquals("1", get(cache));
+		assertEquals(1, parsed);
+		
+		writeConfig("2", time - 4000);
+		cache = new ConfigurationCache(file);
+		cache.load();
+		assertEquals("2", get(cache));
+		assertEquals(2, parsed);
+	}
+
+	private String get(ConfigurationCache cache) throws ConfigurationException {
+		List<File> files = Collections.singletonList(config);
+		return cache.get("test", files, () -> {
+			parsed++;
+			try {
+				ConfigurationReader reader = new ConfigurationReader();
+				reader.put(ConfigurationReader.GENERAL, "value", 
+						new String(Files.readAllBytes(config.toPath()), StandardCharsets.UTF_8));
+				return reader;
+				
+			} catch (IOException e) {
+				throw new ConfigurationException(e.getMessage());
+			}
+		}).get(ConfigurationReader.GENERAL, "value");
+	}
+
+	private void writeConfig(String value, long modified) throws IOException {
+		Files.write(config.toPath(), value.getBytes(StandardCharsets.UTF_8));
+		config.setLastModified(modified);
+	}
+
+}
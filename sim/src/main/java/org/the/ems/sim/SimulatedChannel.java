@@ -0,0 +1,270 @@
+/* 
+ * Copyright 2016-2021 ISC Konstanz
+ * 
+ * This file is part of TH-E-EMS.
+ * For more information visit https://github.com/isc-konstanz/th-e-ems
+ * 
+ * TH-E-EMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * TH-E-EMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with TH-E-EMS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.the.ems.sim;
+
+import org.the.ems.core.EnergyManagementException;
+import org.the.ems.core.ListenerRegistry;
+import org.the.ems.core.data.BooleanValue;
+import org.the.ems.core.data.ByteValue;
+import org.the.ems.core.data.Channel;
+import org.the.ems.core.data.DoubleValue;
+import org.the.ems.core.data.Error;
+import org.the.ems.core.data.FloatValue;
+import org.the.ems.core.data.IntValue;
+import org.the.ems.core.data.InvalidValueException;
+import org.the.ems.core.data.InvalidValueException.Severity;
+import org.the.ems.core.data.LongValue;
+import org.the.ems.core.data.ShortValue;
+import org.the.ems.core.data.StringValue;
+import org.the.ems.core.data.Value;
+import org.the.ems.core.data.ValueList;
+import org.the.ems.core.data.ValueListener;
+import org.the.ems.core.data.ValueSeries;
+import org.the.ems.core.data.ValueType;
+import org.the.ems.core.data.event.ErrorEvent;
+import org.the.ems.core.data.event.EventType;
+import org.the.ems.core.data.event.ValueEvent;
+
+/**
+ * In-memory channel, holding the latest value written to it or generated by its {@link ValueGenerator}.
+ * <p>
+ * Written values will be looped back as received values, future values when they are due. 
+ * Read and write latencies may be injected, as well as a failure, which makes reads and writes fail 
+ * until it is cleared.
+ */
+public class SimulatedChannel implements Channel {
+
+	protected final ListenerRegistry<ValueListener> listeners = 
+			new ListenerRegistry<ValueListener>(ValueListener.class);
+
+	protected final String id;
+
+	protected final int handle;
+
+	protected final ValueType type;
+
+	protected final ValueGenerator generator;
+
+	private final ValueSeries futureValues = new ValueSeries();
+
+	private volatile Value latestValue = null;
+
+	private volatile long latencyRead = 0;
+	private volatile long latencyWrite = 0;
+
+	private volatile InvalidValueException failure = null;
+
+	public SimulatedChannel(String id, int handle, ValueType type, ValueGenerator generator) {
+		this.id = id;
+		this.handle = handle;
+		this.type = type;
+		this.generator = generator;
+	}
+
+	public SimulatedChannel(String id, int handle, ValueType type) {
+		this(id, handle, type, null);
+	}
+
+	@Override
+	public String getId() {
+		return id;
+	}
+
+	@Override
+	public int getHandle() {
+		return handle;
+	}
+
+	public ValueType getType() {
+		return type;
+	}
+
+	public ValueGenerator getGenerator() {
+		return generator;
+	}
+
+	public void setReadLatency(long millis) {
+		this.latencyRead = millis;
+	}
+
+	public void setWriteLatency(long millis) {
+		this.latencyWrite = millis;
+	}
+
+	public void setFailure(Severity severity, String message) {
+		this.failure = new InvalidValueException(this, severity, message);
+		if (severity == Severity.ERROR) {
+			ErrorEvent event = new ErrorEvent(this, message);
+			for (ValueListener listener : listeners.get()) {
+				listener.onEvent(event);
+				listener.onError(new Error(message));
+			}
+		}
+	}
+
+	public void clearFailure() {
+		this.failure = null;
+	}
+
+	public boolean isFailed() {
+		return failure != null;
+	}
+
+	@Override
+	public Value getLatestValue() throws InvalidValueException {
+		delay(latencyRead);
+		
+		InvalidValueException failure = this.failure;
+		if (failure != null) {
+			throw failure;
+		}
+		Value value = latestValue;
+		if (value == null) {
+			throw new InvalidValueException(this, Severity.INFO, "No value received yet");
+		}
+		return value;
+	}
+
+	@Override
+	public Value getLatestValue(ValueListener listener) throws InvalidValueException {
+		registerValueListener(listener);
+		return getLatestValue();
+	}
+
+	@Override
+	public void registerValueListener(ValueListener listener) {
+		listeners.add(listener);
+	}
+
+	@Override
+	public void deregisterValueListener(ValueListener listener) {
+		listeners.remove(listener);
+	}
+
+	@Override
+	public void deregisterValueListeners() {
+		listeners.clear();
+	}
+
+	@Override
+	public void setLatestValue(Value value) {
+		newValue(value);
+	}
+
+	@Override
+	public void write(Value value) throws EnergyManagementException {
+		write(new ValueList(value));
+	}
+
+	@Override
+	public void write(ValueList values) throws EnergyManagementException {
+		delay(latencyWrite);
+		
+		InvalidValueException failure = this.failure;
+		if (failure != null) {
+			throw new EnergyManagementException("Unable to write channel \"" + id + "\": " + failure.getMessage());
+		}
+		ValueList[] split = ValueSeries.of(values).split(System.currentTimeMillis());
+		synchronized (futureValues) {
+			futureValues.clear();
+			futureValues.addAll(split[1]);
+		}
+		for (Value value : split[0]) {
+			newValue(value);
+		}
+	}
+
+	/**
+	 * Advance the simulation of this channel, applying due future values and generating a new value.
+	 * 
+	 * @param timestamp the time of the simulation tick
+	 */
+	public void tick(long timestamp) {
+		if (failure != null) {
+			return;
+		}
+		ValueList dueValues;
+		synchronized (futureValues) {
+			dueValues = new ValueList();
+			while (!futureValues.isEmpty() && futureValues.getFirst().getEpochMillis() <= timestamp) {
+				dueValues.add(futureValues.remove(0));
+			}
+		}
+		for (Value value : dueValues) {
+			newValue(value);
+		}
+		if (generator != null) {
+			newValue(encodeValue(generator.generate(timestamp), timestamp));
+		}
+	}
+
+	protected void newValue(Value value) {
+		Value lastValue = latestValue;
+		boolean changed = lastValue == null || !lastValue.stringValue().equals(value.stringValue());
+		latestValue = value;
+		
+		ValueListener[] listeners = this.listeners.get();
+		for (int i = 0; i < listeners.length; i++) {
+			ValueListener listener = listeners[i];
+			listener.onEvent(new ValueEvent(this, value, EventType.RECEIVED));
+			listener.onValueReceived(value);
+			if (changed) {
+				listener.onEvent(new ValueEvent(this, value, EventType.CHANGED));
+				listener.onValueChanged(value);
+			}
+			listener.onEvent(new ValueEvent(this, value, EventType.UPDATED));
+			listener.onValueUpdated(value);
+		}
+	}
+
+	protected Value encodeValue(double value, long timestamp) {
+		switch(type) {
+		case BOOLEAN:
+			return new BooleanValue(value != 0, timestamp);
+		case BYTE:
+			return new ByteValue((byte) value, timestamp);
+		case SHORT:
+			return new ShortValue((short) value, timestamp);
+		case INTEGER:
+			return new IntValue((int) value, timestamp);
+		case LONG:
+			return new LongValue((long) value, timestamp);
+		case FLOAT:
+			return new FloatValue((float) value, timestamp);
+		case STRING:
+			return new StringValue(String.valueOf(value), timestamp);
+		case DOUBLE:
+		default:
+			return new DoubleValue(value, timestamp);
+		}
+	}
+
+	private static void delay(long millis) {
+		if (millis > 0) {
+			try {
+				Thread.sleep(millis);
+				
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,300 @@
+/* 
+ * Copyright 2016-2021 ISC Konstanz
+ * 
+ * This file is part of TH-E-EMS.
+ * For more information visit https://github.com/isc-konstanz/th-e-ems
+ * 
+ * TH-E-EMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * TH-E-EMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with TH-E-EMS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.the.ems.sim;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.osgi.service.component.ComponentContext;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.the.ems.core.ContentManagementService;
+import org.the.ems.core.EnergyManagementException;
+import org.the.ems.core.config.ConfigurationException;
+import org.the.ems.core.data.Channel;
+import org.the.ems.core.data.InvalidValueException;
+import org.the.ems.core.data.InvalidValueException.Severity;
+import org.the.ems.core.data.UnknownChannelException;
+import org.the.ems.core.data.Value;
+import org.the.ems.core.data.ValueList;
+import org.the.ems.core.data.ValueListener;
+import org.the.ems.core.data.ValueType;
+
+/**
+ * In-memory {@link ContentManagementService}, simulating a catalogue of {@link SimulatedChannel}s 
+ * without OpenMUC, e.g. to run and profile components on a developer machine.
+ * <p>
+ * The catalogue will be read from the properties file configured with the system property 
+ * <code>org.the.ems.sim.config</code>, listing the settings of each channel prefixed by its ID:
+ * 
+ * <pre>
+ * power.type = DOUBLE
+ * power.generator = sine
+ * power.offset = 2000
+ * power.amplitude = 1000
+ * power.period = 86400000
+ * power.latency.read = 0
+ * power.latency.write = 50
+ * power.failure = ERROR
+ * </pre>
+ * 
+ * Available generators are <code>constant</code> (value), <code>ramp</code> (value, slope), 
+ * <code>sine</code> (offset, amplitude, period) and <code>replay</code> (comma separated values).
+ * Unknown channels will be created on demand, without a generator, unless disabled with the 
+ * system property <code>org.the.ems.sim.create</code>.
+ */
+@Component(
+	immediate = true,
+	service = ContentManagementService.class
+)
+public class SimulationManager implements ContentManagementService {
+	private final static Logger logger = LoggerFactory.getLogger(SimulationManager.class);
+
+	private final static String CONFIG_DEFAULT = "conf" + File.separator + "simulation.properties";
+	private final static String CONFIG = System.getProperty("org.the.ems.sim.config", CONFIG_DEFAULT);
+	private final static String CREATE = System.getProperty("org.the.ems.sim.create", "true");
+	private final static String INTERVAL = System.getProperty("org.the.ems.sim.interval", "1000");
+
+	private final Map<String, SimulatedChannel> channels = new ConcurrentHashMap<String, SimulatedChannel>();
+
+	private volatile SimulatedChannel[] handles = new SimulatedChannel[0];
+
+	private final boolean create;
+
+	private ScheduledExecutorService executor = null;
+
+	public SimulationManager() {
+		this(Boolean.parseBoolean(CREATE));
+	}
+
+	public SimulationManager(boolean create) {
+		this.create = create;
+	}
+
+	@Activate
+	protected void activate(ComponentContext context) {
+		logger.info("Activating TH-E Simulated Content Management System");
+		File file = new File(CONFIG);
+		if (file.exists()) {
+			try (InputStream stream = new FileInputStream(file)) {
+				Properties properties = new Properties();
+				properties.load(stream);
+				configure(properties);
+				
+			} catch (IOException | ConfigurationException e) {
+				logger.warn("Error while reading simulation catalogue {}: {}", file, e.getMessage());
+			}
+		}
+		start(Long.parseLong(INTERVAL));
+	}
+
+	@Deactivate
+	protected void deactivate(ComponentContext context) {
+		logger.info("Deactivating TH-E Simulated Content Management System");
+		stop();
+	}
+
+	public void configure(Properties properties) throws ConfigurationException {
+		List<String> ids = new ArrayList<String>();
+		for (String key : properties.stringPropertyNames()) {
+			if (key.endsWith(".type") || key.endsWith(".generator")) {
+				String id = key.substring(0, key.lastIndexOf('.'));
+				if (!ids.contains(id)) {
+					ids.add(id);
+				}
+			}
+		}
+		for (String id : ids) {
+			configure(id, properties);
+		}
+	}
+
+	private void configure(String id, Properties properties) throws ConfigurationException {
+		try {
+			ValueType type = ValueType.valueOf(properties.getProperty(id + ".type", ValueType.DOUBLE.name()).toUpperCase());
+			ValueGenerator generator = null;
+			
+			String generatorName = properties.getProperty(id + ".generator");
+			if (generatorName != null) {
+				double value = Double.parseDouble(properties.getProperty(id + ".value", "0"));
+				switch (generatorName.toLowerCase()) {
+				case "constant":
+					generator = ValueGenerator.constant(value);
+					break;
+				case "ramp":
+					generator = ValueGenerator.ramp(value, 
+							Double.parseDouble(properties.getProperty(id + ".slope", "1")));
+					break;
+				case "sine":
+					generator = ValueGenerator.sine(
+							Double.parseDouble(properties.getProperty(id + ".offset", "0")), 
+							Double.parseDouble(properties.getProperty(id + ".amplitude", "1")), 
+							Long.parseLong(properties.getProperty(id + ".period", "86400000")));
+					break;
+				case "replay":
+					generator = ValueGenerator.replay(Arrays.stream(properties.getProperty(id + ".values", "0").split(","))
+							.mapToDouble(v -> Double.parseDouble(v.trim()))
+							.toArray());
+					break;
+				default:
+					throw new ConfigurationException("Unknown generator for channel \"" + id + "\": " + generatorName);
+				}
+			}
+			SimulatedChannel channel = register(id, type, generator);
+			channel.setReadLatency(Long.parseLong(properties.getProperty(id + ".latency.read", "0")));
+			channel.setWriteLatency(Long.parseLong(properties.getProperty(id + ".latency.write", "0")));
+			
+			String failure = properties.getProperty(id + ".failure");
+			if (failure != null) {
+				channel.setFailure(Severity.valueOf(failure.toUpperCase()), "Simulated failure");
+			}
+		} catch (IllegalArgumentException e) {
+			throw new ConfigurationException("Invalid simulation settings for channel \"" + id + "\": " + e.getMessage());
+		}
+	}
+
+	public synchronized SimulatedChannel register(String id, ValueType type, ValueGenerator generator) {
+		SimulatedChannel channel = channels.get(id);
+		if (channel != null) {
+			return channel;
+		}
+		SimulatedChannel[] handles = Arrays.copyOf(this.handles, this.handles.length + 1);
+		channel = new SimulatedChannel(id, this.handles.length, type, generator);
+		handles[channel.getHandle()] = channel;
+		
+		this.handles = handles;
+		this.channels.put(id, channel);
+		return channel;
+	}
+
+	public Collection<SimulatedChannel> getChannels() {
+		return Arrays.asList(handles);
+	}
+
+	/**
+	 * Start ticking all channels in a fixed interval.
+	 * 
+	 * @param interval the interval between ticks in milliseconds
+	 */
+	public synchronized void start(long interval) {
+		if (executor != null) {
+			return;
+		}
+		executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "TH-E EMS Simulation");
+			thread.setDaemon(true);
+			return thread;
+		});
+		executor.scheduleAtFixedRate(() -> tick(System.currentTimeMillis()), 0, interval, TimeUnit.MILLISECONDS);
+	}
+
+	public synchronized void stop() {
+		if (executor != null) {
+			executor.shutdownNow();
+			executor = null;
+		}
+	}
+
+	public void tick(long timestamp) {
+		for (SimulatedChannel channel : handles) {
+			try {
+				channel.tick(timestamp);
+				
+			} catch (RuntimeException e) {
+				logger.warn("Error simulating channel \"{}\": {}", channel.getId(), e.getMessage());
+			}
+		}
+	}
+
+	@Override
+	public SimulatedChannel getChannel(String id) throws UnknownChannelException {
+		if (id == null) {
+			throw new NullPointerException();
+		}
+		SimulatedChannel channel = channels.get(id);
+		if (channel == null) {
+			if (!create) {
+				throw new UnknownChannelException("Unknown channel for id: " + id);
+			}
+			channel = register(id, ValueType.DOUBLE, null);
+		}
+		return channel;
+	}
+
+	@Override
+	public SimulatedChannel getChannel(int handle) throws UnknownChannelException {
+		SimulatedChannel[] handles = this.handles;
+		if (handle < 0 || handle >= handles.length) {
+			throw new UnknownChannelException("Unknown channel for handle: " + handle);
+		}
+		return handles[handle];
+	}
+
+	@Override
+	public void registerValueListener(String id, ValueListener listener) throws UnknownChannelException {
+		getChannel(id).registerValueListener(listener);
+	}
+
+	@Override
+	public void deregisterValueListener(String id, ValueListener listener) throws UnknownChannelException {
+		getChannel(id).deregisterValueListener(listener);
+	}
+
+	@Override
+	public Value getLatestValue(String id, ValueListener listener) throws UnknownChannelException, InvalidValueException {
+		return getChannel(id).getLatestValue(listener);
+	}
+
+	@Override
+	public Value getLatestValue(String id) throws UnknownChannelException, InvalidValueException {
+		return getChannel(id).getLatestValue();
+	}
+
+	@Override
+	public void setLatestValue(String id, Value value) throws UnknownChannelException {
+		getChannel(id).setLatestValue(value);
+	}
+
+	@Override
+	public void write(String id, Value value) throws UnknownChannelException, EnergyManagementException {
+		getChannel(id).write(value);
+	}
+
+	@Override
+	public void write(String id, ValueList values) throws UnknownChannelException, EnergyManagementException {
+		getChannel(id).write(values);
+	}
+
+}
@@ -0,0 +1,97 @@
+/* 
+ * Copyright 2016-2021 ISC Konstanz
+ * 
+ * This file is part of TH-E-EMS.
+ * For more information visit https://github.com/isc-konstanz/th-e-ems
+ * 
+ * TH-E-EMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * TH-E-EMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with TH-E-EMS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.the.ems.sim;
+
+import org.the.ems.core.data.ValueList;
+
+/**
+ * Generator of synthetic values for a {@link SimulatedChannel}, called on every simulation tick.
+ */
+public interface ValueGenerator {
+
+	public double generate(long timestamp);
+
+	public static ValueGenerator constant(double value) {
+		return timestamp -> value;
+	}
+
+	/**
+	 * Generate values increasing linearly from the start value, beginning with the first tick.
+	 * 
+	 * @param start the value of the first tick
+	 * @param slope the increase per second
+	 * 
+	 * @return the ramp generator
+	 */
+	public static ValueGenerator ramp(double start, double slope) {
+		return new ValueGenerator() {
+
+			private long startTime = Long.MIN_VALUE;
+
+			@Override
+			public synchronized double generate(long timestamp) {
+				if (startTime == Long.MIN_VALUE) {
+					startTime = timestamp;
+				}
+				return start + slope*(timestamp - startTime)/1000;
+			}
+		};
+	}
+
+	public static ValueGenerator sine(double offset, double amplitude, long period) {
+		if (period <= 0) {
+			throw new IllegalArgumentException("Sine period needs to be positive: " + period);
+		}
+		return timestamp -> offset + amplitude*Math.sin(2*Math.PI*(timestamp % period)/period);
+	}
+
+	/**
+	 * Replay a list of values in a loop, one value per tick, ignoring their original timestamps.
+	 * 
+	 * @param values the values to replay
+	 * 
+	 * @return the replay generator
+	 */
+	public static ValueGenerator replay(ValueList values) {
+		if (values.isEmpty()) {
+			throw new IllegalArgumentException("Unable to replay empty values");
+		}
+		double[] replay = new double[values.size()];
+		for (int i = 0; i < replay.length; i++) {
+			replay[i] = values.doubleValue(i);
+		}
+		return replay(replay);
+	}
+
+	public static ValueGenerator replay(double... values) {
+		return new ValueGenerator() {
+
+			private int index = 0;
+
+			@Override
+			public synchronized double generate(long timestamp) {
+				double value = values[index];
+				index = (index + 1) % values.length;
+				return value;
+			}
+		};
+	}
+
+}
@@ -0,0 +1,79 @@
+/* 
+ * Copyright 2016-2021 ISC Konstanz
+ * 
+ * This file is part of TH-E-EMS.
+ * For more information visit https://github.com/isc-konstanz/th-e-ems
+ * 
+ * TH-E-EMS is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * TH-E-EMS is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with TH-E-EMS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.the.ems.sim;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Properties;
+
+import org.junit.Test;
+import org.the.ems.core.EnergyManagementException;
+import org.the.ems.core.data.DoubleValue;
+import org.the.ems.core.data.InvalidValueException;
+import org.the.ems.core.data.ValueList;
+import org.the.ems.core.data.ValueType;
+
+public class TestSimulation {
+
+	@Test
+	public void testGenerators() throws Exception {
+		Properties properties = new Properties();
+		properties.setProperty("ramp.generator", "ramp");
+		properties.setProperty("ramp.slope", "2");
+		properties.setProperty("replay.generator", "replay");
+		properties.setProperty("replay.values", "1, 2");
+		properties.setProperty("replay.type", "INTEGER");
+		
+		SimulationManager manager = new SimulationManager(false);
+		manager.configure(properties);
+		manager.tick(1000);
+		manager.tick(3000);
+		assertEquals(4, manager.getLatestValue("ramp").doubleValue(), 0);
+		assertEquals(2, manager.getLatestValue("replay").intValue());
+		assertEquals(ValueType.INTEGER, manager.getLatestValue("replay").getType());
+	}
+
+	@Test
+	public void testWrite() throws EnergyManagementException {
+		SimulationManager manager = new SimulationManager(true);
+		long time = System.currentTimeMillis();
+		
+		ValueList values = new ValueList();
+		values.add(new DoubleValue(1, time - 1000));
+		values.add(new DoubleValue(2, time + 60000));
+		manager.write("setpoint", values);
+		assertEquals(1, manager.getLatestValue("setpoint").doubleValue(), 0);
+		
+		manager.tick(time + 60000);
+		assertEquals(2, manager.getLatestValue("setpoint").doubleValue(), 0);
+	}
+
+	@Test(expected = InvalidValueException.class)
+	public void testFailure() throws EnergyManagementException {
+		SimulationManager manager = new SimulationManager(true);
+		SimulatedChannel channel = manager.getChannel("failing");
+		channel.setLatestValue(new DoubleValue(1));
+		channel.setFailure(InvalidValueException.Severity.ERROR, "Simulated failure");
+		assertTrue(channel.isFailed());
+		channel.getLatestValue();
+	}
+
+}